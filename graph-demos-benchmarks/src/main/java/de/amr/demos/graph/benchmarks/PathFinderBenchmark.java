@@ -0,0 +1,110 @@
+package de.amr.demos.graph.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amr.demos.graph.pathfinding.model.MapRepresentation;
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+import de.amr.demos.graph.pathfinding.model.PathFinderModel;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.demos.graph.pathfinding.search.LifelongPlanningAStar;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+import de.amr.graph.pathfinder.api.ObservableGraphSearch;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * JMH benchmark measuring {@code findPath} for every path finder algorithm, both grid topologies
+ * and map sizes from 32 up to 10,000, using each map representation. Maps larger than
+ * {@value PathFinderModel#MAX_GRID_GRAPH_MAP_SIZE} cells per side are compact in both representations.
+ * The large maps need a few GB of heap, the forked JVM gets 8 GB.
+ * <p>
+ * LPA* keeps its search state between runs and would only repeat a finished search, so each
+ * invocation gets a new planner and measures a complete search.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar PathFinderBenchmark}.
+ *
+ * @author Armin Reichert
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PathFinderBenchmark {
+
+	public enum MapLayout {
+		/** No walls at all. */
+		EMPTY,
+		/** Vertical wall between source and target with a gap at the top. */
+		BARRIER
+	}
+
+	@Param
+	public PathFinderAlgorithm algorithm;
+
+	@Param({ "4", "8" })
+	public int neighbors;
+
+	@Param({ "32", "64", "128", "256", "316", "1000", "4000", "10000" })
+	public int mapSize;
+
+	@Param
+	public MapLayout layout;
+
+	@Param
+	public MapRepresentation representation;
+
+	private PathFinderModel model;
+	private ObservableGraphSearch pathFinder;
+	private int source;
+	private int target;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		GridTopology topology = neighbors == 4 ? Grid4Topology.get() : Grid8Topology.get();
+		model = new PathFinderModel(mapSize, topology, representation);
+		if (layout == MapLayout.BARRIER) {
+			int size = model.getMapSize();
+			for (int row = size / 4; row < size; ++row) {
+				model.setMapContent(model.getMap().cell(size / 2, row), Tile.WALL);
+			}
+		}
+		source = model.getSource();
+		target = model.getTarget();
+		pathFinder = model.getPathFinder(algorithm.ordinal());
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpInvocation() {
+		if (algorithm == PathFinderAlgorithm.LPAStar) {
+			pathFinder = new LifelongPlanningAStar(model.getMap());
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public Path throughput() {
+		return pathFinder.findPath(source, target);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Path averageTime() {
+		return pathFinder.findPath(source, target);
+	}
+}
@@ -28,6 +28,7 @@ public class PathFinderDemoApp {
 
 	public PathFinderDemoApp() {
 		var model = new PathFinderModel(25, Grid8Topology.get());
+		model.getMetrics().registerMBeans();
 		var controller = new PathFinderController(model, PathFinderAlgorithm.BFS, PathFinderAlgorithm.AStar);
 		controller.createAndShowUI();
 	}
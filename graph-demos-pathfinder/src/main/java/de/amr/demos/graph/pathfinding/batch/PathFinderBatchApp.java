@@ -0,0 +1,364 @@
+package de.amr.demos.graph.pathfinding.batch;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import de.amr.demos.graph.pathfinding.model.Heuristic;
+import de.amr.demos.graph.pathfinding.model.MapEdit;
+import de.amr.demos.graph.pathfinding.model.MapFile;
+import de.amr.demos.graph.pathfinding.model.MapRepresentation;
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+import de.amr.demos.graph.pathfinding.model.PathFinderModel;
+import de.amr.demos.graph.pathfinding.model.QueryAnswer;
+import de.amr.demos.graph.pathfinding.model.SearchBudget;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.demos.graph.pathfinding.search.Landmarks;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+import de.amr.graph.pathfinder.api.Path;
+import de.amr.util.StopWatch;
+
+/**
+ * Headless batch runner for the path finder algorithms. Loads or generates a map, runs the selected
+ * algorithms over many source/target pairs and streams the results as CSV or JSON lines. Does not
+ * need a display.
+ * <p>
+ * Options:
+ * <ul>
+ * <li>{@code --map <file>} ASCII map, '#' and '@' are walls, or binary map with extension
+ * {@code .pfmap} (default: generated map)</li>
+ * <li>{@code --save-map <file>} writes the map as binary map file</li>
+ * <li>{@code --size <n>} size of generated map (default: 100)</li>
+ * <li>{@code --walls <density>} wall density of generated map between 0 and 1 (default: 0.2)</li>
+ * <li>{@code --topology 4|8} grid topology (default: 8)</li>
+ * <li>{@code --representation grid_graph|compact} map representation (default: grid_graph)</li>
+ * <li>{@code --algorithms <names>} comma-separated algorithm names (default: all)</li>
+ * <li>{@code --heuristic euclidean|alt} heuristic of A*, bidirectional A* and best-first search
+ * (default: euclidean)</li>
+ * <li>{@code --landmarks <n>} number of ALT landmarks (default: 8)</li>
+ * <li>{@code --landmark-selection perimeter|farthest|random} ALT landmark selection (default:
+ * perimeter)</li>
+ * <li>{@code --queries <n>} number of queries (default: 100)</li>
+ * <li>{@code --pairs <n>} number of distinct random source/target pairs the queries are drawn from
+ * (default: number of queries, each query gets a new pair)</li>
+ * <li>{@code --sources <n>} number of distinct random sources the pairs are drawn from (default: a
+ * new source for each pair)</li>
+ * <li>{@code --cache <n>} capacity of the path cache, 0 disables it (default: 0)</li>
+ * <li>{@code --warmup <n>} untimed runs of each algorithm before the timed runs (default: 0)</li>
+ * <li>{@code --repetitions <n>} timed runs of each algorithm per query, the reported time is the
+ * median (default: 1)</li>
+ * <li>{@code --max-expansions <n>} stops a search after n expansions, 0 = unlimited (default: 0)</li>
+ * <li>{@code --time-limit <ms>} stops a search after the time limit, 0 = unlimited (default: 0)</li>
+ * <li>{@code --mode single|batch} {@code single} runs each algorithm per query, {@code batch}
+ * answers all queries by the one-to-many Dijkstra search, one search per distinct source, and only
+ * reports a summary (default: single)</li>
+ * <li>{@code --metrics <seconds>} publishes the metrics via JMX, dumps them periodically to standard
+ * error and once at the end</li>
+ * <li>{@code --seed <n>} random seed (default: 0)</li>
+ * <li>{@code --format csv|json} output format (default: csv)</li>
+ * <li>{@code --out <file>} output file (default: standard output)</li>
+ * </ul>
+ *
+ * @author Armin Reichert
+ */
+public class PathFinderBatchApp {
+
+	public static void main(String[] args) {
+		try {
+			new PathFinderBatchApp(parseOptions(args)).run();
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(
+					"Usage: PathFinderBatchApp [--map file | --size n --walls density] [--topology 4|8] [--algorithms a,b,...]"
+							+ " [--save-map file] [--representation grid_graph|compact] [--heuristic euclidean|alt] [--landmarks n]"
+							+ " [--landmark-selection perimeter|farthest|random] [--queries n] [--pairs n] [--sources n]"
+							+ " [--cache n] [--warmup n] [--repetitions n] [--max-expansions n] [--time-limit ms] [--mode single|batch] [--metrics seconds] [--seed n] [--format csv|json] [--out file]");
+			System.exit(1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+
+	static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; ++i) {
+			if (!args[i].startsWith("--") || i + 1 == args.length) {
+				throw new IllegalArgumentException("Invalid argument: " + args[i]);
+			}
+			options.put(args[i].substring(2), args[++i]);
+		}
+		return options;
+	}
+
+	private final Map<String, String> options;
+	private final Random rnd;
+	private PathFinderModel model;
+
+	public PathFinderBatchApp(Map<String, String> options) {
+		this.options = options;
+		this.rnd = new Random(Long.parseLong(options.getOrDefault("seed", "0")));
+	}
+
+	private GridTopology topology() {
+		switch (options.getOrDefault("topology", "8")) {
+		case "4":
+			return Grid4Topology.get();
+		case "8":
+			return Grid8Topology.get();
+		default:
+			throw new IllegalArgumentException("Invalid topology: " + options.get("topology"));
+		}
+	}
+
+	static MapRepresentation mapRepresentation(Map<String, String> options) {
+		return MapRepresentation.valueOf(options.getOrDefault("representation", "grid_graph").toUpperCase(Locale.ROOT));
+	}
+
+	static List<PathFinderAlgorithm> algorithms(Map<String, String> options) {
+		List<PathFinderAlgorithm> algorithms = new ArrayList<>();
+		if (!options.containsKey("algorithms")) {
+			algorithms.addAll(List.of(PathFinderAlgorithm.values()));
+			return algorithms;
+		}
+		for (String name : options.get("algorithms").split(",")) {
+			try {
+				algorithms.add(PathFinderAlgorithm.valueOf(name.trim()));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown algorithm: " + name);
+			}
+		}
+		return algorithms;
+	}
+
+	static void configureHeuristic(PathFinderModel model, Map<String, String> options) {
+		model.setHeuristic(Heuristic.valueOf(options.getOrDefault("heuristic", "euclidean").toUpperCase(Locale.ROOT)));
+		model.setLandmarkCount(
+				Integer.parseInt(options.getOrDefault("landmarks", String.valueOf(Landmarks.DEFAULT_COUNT))));
+		model.setLandmarkSelection(Landmarks.Selection
+				.valueOf(options.getOrDefault("landmark-selection", "perimeter").toUpperCase(Locale.ROOT)));
+		if (model.getHeuristic() == Heuristic.ALT && model.getLandmarksFallback() != null) {
+			info("Landmarks not built, heuristic %s", model.getLandmarksFallback());
+		} else if (model.getHeuristic() == Heuristic.ALT) {
+			Landmarks landmarks = model.getLandmarks();
+			info("Landmarks: %d (%s), %.1f MB, preprocessing %.1f ms", landmarks.numLandmarks(), landmarks.getSelection(),
+					landmarks.sizeBytes() / (1024.0 * 1024.0), landmarks.getBuildTimeMillis());
+		}
+	}
+
+	/*
+	 * With option --metrics, the metrics are published via JMX and dumped periodically. Metrics of the
+	 * map setup are discarded.
+	 */
+	static void startMetrics(PathFinderModel model, Map<String, String> options) {
+		if (options.containsKey("metrics")) {
+			long periodMillis = Math.round(1000 * Double.parseDouble(options.get("metrics")));
+			model.getMetrics().reset();
+			model.getMetrics().registerMBeans();
+			model.getMetrics().startPeriodicDump(periodMillis, System.err::print);
+		}
+	}
+
+	static void stopMetrics(PathFinderModel model, Map<String, String> options) {
+		if (options.containsKey("metrics")) {
+			model.getMetrics().stopPeriodicDump();
+			System.err.print(model.getMetrics().getReport());
+			model.getMetrics().unregisterMBeans();
+		}
+	}
+
+	// progress goes to stderr, stdout may carry the results
+	static void info(String format, Object... args) {
+		System.err.println(String.format(Locale.ROOT, format, args));
+	}
+
+	private static void checkMapSize(int size) {
+		if (size < PathFinderModel.MIN_MAP_SIZE || size > PathFinderModel.MAX_MAP_SIZE) {
+			throw new IllegalArgumentException(String.format("Map size %d not in range [%d, %d]", size,
+					PathFinderModel.MIN_MAP_SIZE, PathFinderModel.MAX_MAP_SIZE));
+		}
+	}
+
+	private void loadBinaryMap(String fileName) throws IOException {
+		StopWatch watch = new StopWatch();
+		watch.start();
+		MapFile.Content content = MapFile.read(Paths.get(fileName));
+		model = new PathFinderModel(PathFinderModel.MIN_MAP_SIZE, content.topology(), mapRepresentation(options));
+		model.setMap(content);
+		model.clearResults();
+		watch.stop();
+		info("Map loaded from '%s' (%d x %d cells) in %.1f ms", fileName, content.numCols(), content.numRows(),
+				watch.getMillis());
+	}
+
+	private void saveMap(String fileName) throws IOException {
+		StopWatch watch = new StopWatch();
+		watch.start();
+		MapFile.write(model, Paths.get(fileName));
+		watch.stop();
+		info("Map saved to '%s' in %.1f ms", fileName, watch.getMillis());
+	}
+
+	private void loadMap(String fileName) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+		int size = lines.size();
+		for (String line : lines) {
+			size = Math.max(size, line.length());
+		}
+		checkMapSize(size);
+		model = new PathFinderModel(size, topology(), mapRepresentation(options));
+		MapEdit walls = new MapEdit(model.getMap());
+		for (int row = 0; row < size; ++row) {
+			String line = row < lines.size() ? lines.get(row) : "";
+			for (int col = 0; col < size; ++col) {
+				// cells outside of the map text become walls
+				boolean wall = col >= line.length() || line.charAt(col) == '#' || line.charAt(col) == '@';
+				if (wall) {
+					walls.set(col, row, Tile.WALL);
+				}
+			}
+		}
+		model.applyEdit(walls);
+		info("Map loaded from '%s' (%d x %d cells)", fileName, size, size);
+	}
+
+	private void generateMap() {
+		int size = Integer.parseInt(options.getOrDefault("size", "100"));
+		double density = Double.parseDouble(options.getOrDefault("walls", "0.2"));
+		checkMapSize(size);
+		model = new PathFinderModel(size, topology(), mapRepresentation(options));
+		MapEdit walls = new MapEdit(model.getMap());
+		for (int cell = 0; cell < model.getMap().numVertices(); ++cell) {
+			if (rnd.nextDouble() < density) {
+				walls.set(cell, Tile.WALL);
+			}
+		}
+		model.applyEdit(walls);
+		info("Map generated (%d x %d cells, wall density %.2f)", size, size, density);
+	}
+
+	private int randomBlankCell() {
+		int numCells = model.getMap().numVertices();
+		for (int attempt = 0; attempt < 10 * numCells; ++attempt) {
+			int cell = rnd.nextInt(numCells);
+			if (model.getMap().get(cell) != Tile.WALL) {
+				return cell;
+			}
+		}
+		throw new IllegalArgumentException("Map contains no free cells");
+	}
+
+	private PrintWriter openOutput() throws IOException {
+		String fileName = options.get("out");
+		if (fileName == null) {
+			return new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		}
+		return new PrintWriter(Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8));
+	}
+
+	public void run() throws IOException {
+		if (options.containsKey("map")) {
+			String fileName = options.get("map");
+			if (fileName.endsWith(MapFile.EXTENSION)) {
+				loadBinaryMap(fileName);
+			} else {
+				loadMap(fileName);
+			}
+		} else {
+			generateMap();
+		}
+		if (options.containsKey("save-map")) {
+			saveMap(options.get("save-map"));
+		}
+		configureHeuristic(model, options);
+		startMetrics(model, options);
+		try {
+			runQueries();
+		} finally {
+			stopMetrics(model, options);
+		}
+	}
+
+	private void runQueries() throws IOException {
+		List<PathFinderAlgorithm> algorithms = algorithms(options);
+		int numQueries = Integer.parseInt(options.getOrDefault("queries", "100"));
+		int numPairs = Integer.parseInt(options.getOrDefault("pairs", String.valueOf(numQueries)));
+		if (numPairs <= 0) {
+			throw new IllegalArgumentException("Invalid number of pairs: " + numPairs);
+		}
+		int[] sourcePool = null;
+		if (options.containsKey("sources")) {
+			int numSources = Integer.parseInt(options.get("sources"));
+			if (numSources <= 0) {
+				throw new IllegalArgumentException("Invalid number of sources: " + numSources);
+			}
+			sourcePool = IntStream.range(0, numSources).map(i -> randomBlankCell()).toArray();
+		}
+		int[] sources = new int[numPairs], targets = new int[numPairs];
+		for (int i = 0; i < numPairs; ++i) {
+			sources[i] = sourcePool != null ? sourcePool[rnd.nextInt(sourcePool.length)] : randomBlankCell();
+			targets[i] = randomBlankCell();
+		}
+		model.getPathCache().setCapacity(Integer.parseInt(options.getOrDefault("cache", "0")));
+		model.setMeasurement(Integer.parseInt(options.getOrDefault("warmup", "0")),
+				Integer.parseInt(options.getOrDefault("repetitions", "1")));
+		model.setSearchBudget(SearchBudget.ofMillis(Long.parseLong(options.getOrDefault("max-expansions", "0")),
+				Long.parseLong(options.getOrDefault("time-limit", "0"))));
+		String mode = options.getOrDefault("mode", "single");
+		if ("batch".equals(mode)) {
+			runBatch(numQueries, numPairs, sources, targets);
+			return;
+		} else if (!"single".equals(mode)) {
+			throw new IllegalArgumentException("Invalid mode: " + mode);
+		}
+		ResultWriter.Format format = ResultWriter.Format
+				.valueOf(options.getOrDefault("format", "csv").toUpperCase(Locale.ROOT));
+		try (ResultWriter writer = ResultWriter.create(format, openOutput())) {
+			writer.writeHeader();
+			for (int query = 0; query < numQueries; ++query) {
+				int pair = numPairs == numQueries ? query : rnd.nextInt(numPairs);
+				int source = sources[pair], target = targets[pair];
+				model.setSource(source);
+				model.setTarget(target);
+				for (PathFinderAlgorithm algorithm : algorithms) {
+					model.runPathFinder(algorithm.ordinal());
+					writer.write(query, algorithm, source, target, model.getResultAtIndex(algorithm.ordinal()));
+				}
+			}
+		}
+		info("%d queries x %d algorithms done", numQueries, algorithms.size());
+		if (model.getPathCache().isEnabled()) {
+			info("Path cache: %s", model.getPathCache());
+		}
+	}
+
+	private void runBatch(int numQueries, int numPairs, int[] sources, int[] targets) {
+		int[] querySources = new int[numQueries], queryTargets = new int[numQueries];
+		for (int query = 0; query < numQueries; ++query) {
+			int pair = numPairs == numQueries ? query : rnd.nextInt(numPairs);
+			querySources[query] = sources[pair];
+			queryTargets[query] = targets[pair];
+		}
+		StopWatch watch = new StopWatch();
+		watch.start();
+		QueryAnswer[] answers = model.findPaths(querySources, queryTargets);
+		watch.stop();
+		long numSearches = IntStream.of(querySources).distinct().count();
+		long numUnreachable = Stream.of(answers).filter(answer -> answer.path() == Path.NULL).count();
+		info("%d queries answered by %d searches in %.1f ms (%.3f ms per query), %d targets unreachable", numQueries,
+				numSearches, watch.getMillis(), watch.getMillis() / numQueries, numUnreachable);
+	}
+}
@@ -0,0 +1,117 @@
+package de.amr.demos.graph.pathfinding.batch;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+import de.amr.demos.graph.pathfinding.model.PathFinderResult;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Writes path finder results as CSV or JSON lines, one record per (query, algorithm).
+ *
+ * @author Armin Reichert
+ */
+public abstract class ResultWriter implements AutoCloseable {
+
+	public enum Format {
+		CSV, JSON
+	}
+
+	public static ResultWriter create(Format format, PrintWriter out) {
+		switch (format) {
+		case CSV:
+			return new CsvWriter(out);
+		case JSON:
+			return new JsonLinesWriter(out);
+		default:
+			throw new IllegalArgumentException("Unknown format: " + format);
+		}
+	}
+
+	protected final PrintWriter out;
+
+	protected ResultWriter(PrintWriter out) {
+		this.out = out;
+	}
+
+	public abstract void writeHeader();
+
+	public abstract void write(int query, PathFinderAlgorithm algorithm, int source, int target, PathFinderResult result);
+
+	@Override
+	public void close() {
+		out.flush();
+		out.close();
+	}
+
+	protected static boolean hasPath(PathFinderResult result) {
+		return result.getPathLength() != -1 && result.getCost() != Path.INFINITE_COST;
+	}
+
+	/*
+	 * Formats a time of the timing distribution, missing if the result was not measured (cached).
+	 */
+	protected static String millis(long nanos, PathFinderResult result, String missing) {
+		return result.getTiming().isMeasured() ? String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0) : missing;
+	}
+
+	protected static String millis(long nanos, PathFinderResult result) {
+		return millis(nanos, result, "");
+	}
+
+	protected static String allocatedBytes(PathFinderResult result, String missing) {
+		return result.getAllocatedBytes() < 0 ? missing : String.valueOf(result.getAllocatedBytes());
+	}
+
+	private static class CsvWriter extends ResultWriter {
+
+		CsvWriter(PrintWriter out) {
+			super(out);
+		}
+
+		@Override
+		public void writeHeader() {
+			out.println("query,algorithm,source,target,time_ms,min_ms,median_ms,p95_ms,p99_ms,preprocessing_ms,path_length,cost,touched,closed,peak_open,expansions_per_s,allocated_bytes,state_bytes,termination,cached,fallback");
+		}
+
+		@Override
+		public void write(int query, PathFinderAlgorithm algorithm, int source, int target, PathFinderResult result) {
+			out.println(String.format(Locale.ROOT, "%d,%s,%d,%d,%.3f,%s,%s,%s,%s,%.3f,%d,%s,%d,%d,%d,%.0f,%s,%d,%s,%b,%s", query,
+					algorithm.name(), source, target, result.getRunningTimeMillis(), millis(result.getTiming().minNanos(), result),
+					millis(result.getTiming().medianNanos(), result), millis(result.getTiming().p95Nanos(), result),
+					millis(result.getTiming().p99Nanos(), result), result.getPreprocessingTimeMillis(), result.getPathLength(),
+					hasPath(result) ? String.format(Locale.ROOT, "%.3f", result.getCost()) : "",
+					result.getNumTouchedVertices(), result.getNumClosedVertices(), result.getPeakOpenListSize(),
+					result.getExpansionsPerSecond(), allocatedBytes(result, ""), result.getStateSizeBytes(),
+					result.getTermination().name(), result.isCached(), result.getFallback() != null ? result.getFallback() : ""));
+		}
+	}
+
+	private static class JsonLinesWriter extends ResultWriter {
+
+		JsonLinesWriter(PrintWriter out) {
+			super(out);
+		}
+
+		@Override
+		public void writeHeader() {
+			// JSON lines are self-describing
+		}
+
+		@Override
+		public void write(int query, PathFinderAlgorithm algorithm, int source, int target, PathFinderResult result) {
+			out.println(String.format(Locale.ROOT,
+					"{\"query\":%d,\"algorithm\":\"%s\",\"source\":%d,\"target\":%d,\"time_ms\":%.3f,\"min_ms\":%s,\"median_ms\":%s,\"p95_ms\":%s,\"p99_ms\":%s,\"preprocessing_ms\":%.3f,\"path_length\":%d,\"cost\":%s,\"touched\":%d,\"closed\":%d,\"peak_open\":%d,\"expansions_per_s\":%.0f,\"allocated_bytes\":%s,\"state_bytes\":%d,\"termination\":\"%s\",\"cached\":%b,\"fallback\":%s}",
+					query, algorithm.name(), source, target, result.getRunningTimeMillis(),
+					millis(result.getTiming().minNanos(), result, "null"), millis(result.getTiming().medianNanos(), result, "null"),
+					millis(result.getTiming().p95Nanos(), result, "null"), millis(result.getTiming().p99Nanos(), result, "null"),
+					result.getPreprocessingTimeMillis(), result.getPathLength(),
+					hasPath(result) ? String.format(Locale.ROOT, "%.3f", result.getCost()) : "null",
+					result.getNumTouchedVertices(), result.getNumClosedVertices(), result.getPeakOpenListSize(),
+					result.getExpansionsPerSecond(), allocatedBytes(result, "null"), result.getStateSizeBytes(),
+					result.getTermination().name(), result.isCached(),
+					result.getFallback() != null ? "\"" + result.getFallback() + "\"" : "null"));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package de.amr.demos.graph.pathfinding.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader for scenario files in the format of the Moving AI grid benchmarks (movingai.com).
+ * <p>
+ * After the line {@code version 1}, each line holds one query as tab-separated fields: bucket, map
+ * file, map width, map height, start x, start y, goal x, goal y and optimal length.
+ *
+ * @author Armin Reichert
+ */
+public class ScenarioFile {
+
+	public static final String EXTENSION = ".scen";
+
+	/**
+	 * Query of a scenario.
+	 *
+	 * @param bucket        bucket (difficulty class)
+	 * @param map           map file name as given in the scenario
+	 * @param mapWidth      map width
+	 * @param mapHeight     map height
+	 * @param startX        start column
+	 * @param startY        start row
+	 * @param goalX         goal column
+	 * @param goalY         goal row
+	 * @param optimalLength optimal path length without corner cutting
+	 */
+	public record Query(int bucket, String map, int mapWidth, int mapHeight, int startX, int startY, int goalX,
+			int goalY, double optimalLength) {
+	}
+
+	private ScenarioFile() {
+	}
+
+	/**
+	 * @param file scenario file
+	 * @return the queries in file order
+	 * @throws IOException if the file cannot be read or has an invalid format
+	 */
+	public static List<Query> read(Path file) throws IOException {
+		List<Query> queries = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (line == null || !line.trim().startsWith("version")) {
+				throw new IOException("Missing version line in " + file);
+			}
+			int lineNumber = 1;
+			while ((line = reader.readLine()) != null) {
+				++lineNumber;
+				if (line.isBlank()) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				if (fields.length != 9) {
+					throw new IOException(String.format("%s:%d: expected 9 fields but found %d", file, lineNumber,
+							fields.length));
+				}
+				try {
+					queries.add(new Query(Integer.parseInt(fields[0]), fields[1], Integer.parseInt(fields[2]),
+							Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+							Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Double.parseDouble(fields[8])));
+				} catch (NumberFormatException e) {
+					throw new IOException(String.format("%s:%d: %s", file, lineNumber, e.getMessage()));
+				}
+			}
+		}
+		return queries;
+	}
+}
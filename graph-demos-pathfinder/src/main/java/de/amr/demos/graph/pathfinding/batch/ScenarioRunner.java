@@ -0,0 +1,262 @@
+package de.amr.demos.graph.pathfinding.batch;
+
+import static de.amr.demos.graph.pathfinding.batch.PathFinderBatchApp.info;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.MapFile;
+import de.amr.demos.graph.pathfinding.model.MapRepresentation;
+import de.amr.demos.graph.pathfinding.model.MovingAiMap;
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+import de.amr.demos.graph.pathfinding.model.PathFinderModel;
+import de.amr.demos.graph.pathfinding.model.QueryAnswer;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.pathfinder.api.Path;
+import de.amr.util.StopWatch;
+
+/**
+ * Runs the queries of a Moving AI scenario file (.scen) with the selected algorithms and reports
+ * throughput and suboptimality, one CSV line per algorithm. The queries of each algorithm run in
+ * parallel.
+ * <p>
+ * Suboptimality is {@code length / optimal length - 1} where {@code length} is the Euclidean length
+ * of the path found. The optimal lengths stored in the file do not allow diagonal moves to cut
+ * corners. Moving AI maps are therefore searched with the same rule on a compact map, and the
+ * algorithms following it (see {@link PathFinderModel#followsCornerRule(PathFinderAlgorithm)}) are
+ * compared with the lengths of the file, as published results are. The other algorithms, and all
+ * algorithms on maps allowing corner cutting, are compared with optimal lengths computed by Dijkstra
+ * with corner cutting on the same map. The column {@code reference} tells which lengths were used,
+ * the number of paths shorter than the length stored in the file is reported separately.
+ * <p>
+ * Options:
+ * <ul>
+ * <li>{@code --scen <file>} scenario file (required)</li>
+ * <li>{@code --map <file>} map file (default: the map named in the scenario, in the directory of the
+ * scenario file)</li>
+ * <li>{@code --algorithms <names>} comma-separated algorithm names (default: all)</li>
+ * <li>{@code --representation grid_graph|compact} map representation (default: compact if corner
+ * cutting is forbidden, else grid_graph, maps larger than the grid graph limit are always
+ * compact)</li>
+ * <li>{@code --corner-cutting yes|no} if diagonal moves may cut corners (default: no for Moving AI
+ * maps, yes for maps of the demo), forbidding it needs the compact representation</li>
+ * <li>{@code --heuristic euclidean|alt}, {@code --landmarks <n>},
+ * {@code --landmark-selection perimeter|farthest|random} as in {@link PathFinderBatchApp}</li>
+ * <li>{@code --metrics <seconds>} as in {@link PathFinderBatchApp}</li>
+ * <li>{@code --threads <n>} number of worker threads (default: number of processors)</li>
+ * <li>{@code --out <file>} output file (default: standard output)</li>
+ * </ul>
+ *
+ * @author Armin Reichert
+ */
+public class ScenarioRunner {
+
+	private static final double LENGTH_TOLERANCE = 1e-4;
+
+	public static void main(String[] args) {
+		try {
+			new ScenarioRunner(PathFinderBatchApp.parseOptions(args)).run();
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ScenarioRunner --scen file [--map file] [--algorithms a,b,...]"
+					+ " [--representation grid_graph|compact] [--corner-cutting yes|no] [--heuristic euclidean|alt] [--landmarks n]"
+					+ " [--landmark-selection perimeter|farthest|random] [--metrics seconds] [--threads n] [--out file]");
+			System.exit(1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+
+	private final Map<String, String> options;
+	private PathFinderModel model;
+	private int numCols;
+	private double[] dijkstraLengths;
+
+	public ScenarioRunner(Map<String, String> options) {
+		this.options = options;
+	}
+
+	public void run() throws IOException {
+		if (!options.containsKey("scen")) {
+			throw new IllegalArgumentException("Missing scenario file");
+		}
+		var scenarioFile = Paths.get(options.get("scen"));
+		List<ScenarioFile.Query> queries = ScenarioFile.read(scenarioFile);
+		if (queries.isEmpty()) {
+			throw new IllegalArgumentException("Scenario contains no queries: " + scenarioFile);
+		}
+		var mapFile = options.containsKey("map") ? Paths.get(options.get("map"))
+				: scenarioFile.resolveSibling(Paths.get(queries.get(0).map()).getFileName());
+
+		StopWatch watch = new StopWatch();
+		watch.start();
+		boolean movingAiMap = !mapFile.toString().endsWith(MapFile.EXTENSION);
+		MapFile.Content content = movingAiMap ? MovingAiMap.read(mapFile) : MapFile.read(mapFile);
+		boolean cornerCutting = cornerCutting(options, movingAiMap);
+		MapRepresentation representation = cornerCutting || options.containsKey("representation")
+				? PathFinderBatchApp.mapRepresentation(options)
+				: MapRepresentation.COMPACT;
+		model = new PathFinderModel(PathFinderModel.MIN_MAP_SIZE, content.topology(), representation);
+		model.setMap(content);
+		if (!cornerCutting) {
+			if (!(model.getMap() instanceof CompactGridMap compactMap)) {
+				throw new IllegalArgumentException("Forbidding corner cutting needs the compact map representation");
+			}
+			compactMap.setCornerCutting(false);
+		}
+		model.clearResults();
+		watch.stop();
+		numCols = model.getMap().numCols();
+		info("Map loaded from '%s' (%d x %d cells) in %.1f ms", mapFile, content.numCols(), content.numRows(),
+				watch.getMillis());
+
+		int threads = Integer.parseInt(
+				options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Invalid number of threads: " + threads);
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		model.setExecutor(pool);
+		PathFinderBatchApp.configureHeuristic(model, options);
+		PathFinderBatchApp.startMetrics(model, options);
+
+		int[] sources = new int[queries.size()], targets = new int[queries.size()];
+		for (int i = 0; i < queries.size(); ++i) {
+			ScenarioFile.Query query = queries.get(i);
+			sources[i] = cell(query.startX(), query.startY());
+			targets[i] = cell(query.goalX(), query.goalY());
+		}
+
+		try (PrintWriter out = openOutput()) {
+			out.println("algorithm,queries,solved,time_ms,queries_per_s,reference,mean_suboptimality_pct,"
+					+ "max_suboptimality_pct,shorter_than_reference");
+			for (PathFinderAlgorithm algorithm : PathFinderBatchApp.algorithms(options)) {
+				boolean scenarioReference = !cornerCutting && PathFinderModel.followsCornerRule(algorithm);
+				setCornerCutting(!scenarioReference);
+				watch.start();
+				QueryAnswer[] answers = model.findPaths(algorithm, sources, targets);
+				watch.stop();
+				float millis = watch.getMillis();
+				double[] optimalLengths = scenarioReference ? scenarioLengths(queries) : dijkstraLengths(sources, targets);
+				report(out, algorithm, scenarioReference, queries, optimalLengths, answers, millis);
+				out.flush();
+			}
+		} finally {
+			pool.shutdown();
+			PathFinderBatchApp.stopMetrics(model, options);
+		}
+		info("%d queries done", queries.size());
+	}
+
+	private static boolean cornerCutting(Map<String, String> options, boolean movingAiMap) {
+		String value = options.getOrDefault("corner-cutting", movingAiMap ? "no" : "yes");
+		switch (value) {
+		case "yes":
+			return true;
+		case "no":
+			return false;
+		default:
+			throw new IllegalArgumentException("Invalid corner cutting option: " + value);
+		}
+	}
+
+	/*
+	 * Path finders read the corner rule when they are created, so it can be changed between the runs of
+	 * the algorithms.
+	 */
+	private void setCornerCutting(boolean cornerCutting) {
+		if (model.getMap() instanceof CompactGridMap compactMap) {
+			compactMap.setCornerCutting(cornerCutting);
+		}
+	}
+
+	private static double[] scenarioLengths(List<ScenarioFile.Query> queries) {
+		return queries.stream().mapToDouble(ScenarioFile.Query::optimalLength).toArray();
+	}
+
+	/*
+	 * Optimal lengths with corner cutting, computed on first use.
+	 */
+	private double[] dijkstraLengths(int[] sources, int[] targets) {
+		if (dijkstraLengths == null) {
+			StopWatch watch = new StopWatch();
+			watch.start();
+			QueryAnswer[] answers = model.findPaths(sources, targets);
+			watch.stop();
+			info("Optimal lengths computed by Dijkstra in %.1f ms", watch.getMillis());
+			dijkstraLengths = Arrays.stream(answers).mapToDouble(QueryAnswer::cost).toArray();
+		}
+		return dijkstraLengths;
+	}
+
+	private int cell(int x, int y) {
+		if (!model.getMap().isValidCol(x) || !model.getMap().isValidRow(y)) {
+			throw new IllegalArgumentException(String.format("Query cell (%d, %d) outside of map", x, y));
+		}
+		int cell = model.getMap().cell(x, y);
+		if (model.getMap().get(cell) == Tile.WALL) {
+			throw new IllegalArgumentException(
+					String.format("Query cell (%d, %d) is a wall, scenario does not match map", x, y));
+		}
+		return cell;
+	}
+
+	private void report(PrintWriter out, PathFinderAlgorithm algorithm, boolean scenarioReference,
+			List<ScenarioFile.Query> queries, double[] optimalLengths, QueryAnswer[] answers, float millis) {
+		int solved = 0, shorter = 0;
+		double sumSuboptimality = 0, maxSuboptimality = 0;
+		for (int i = 0; i < answers.length; ++i) {
+			if (answers[i].path() == Path.NULL) {
+				continue;
+			}
+			++solved;
+			double length = length(answers[i].path());
+			if (length < queries.get(i).optimalLength() - LENGTH_TOLERANCE) {
+				++shorter;
+			}
+			double optimal = optimalLengths[i];
+			if (length < optimal - LENGTH_TOLERANCE) {
+				throw new IllegalStateException(String.format("%s found path of length %.4f shorter than optimal %.4f",
+						algorithm, length, optimal));
+			}
+			// lengths within the tolerance are rounding errors of the same path length
+			double suboptimality = length > optimal + LENGTH_TOLERANCE ? length / optimal - 1 : 0;
+			sumSuboptimality += suboptimality;
+			maxSuboptimality = Math.max(maxSuboptimality, suboptimality);
+		}
+		out.println(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.1f,%s,%.3f,%.3f,%d", algorithm, answers.length, solved,
+				millis, millis > 0 ? 1000.0 * answers.length / millis : 0, scenarioReference ? "scenario" : "dijkstra",
+				solved > 0 ? 100 * sumSuboptimality / solved : 0, 100 * maxSuboptimality, shorter));
+	}
+
+	private double length(Path path) {
+		double length = 0;
+		int prev = -1;
+		for (int cell : path) {
+			if (prev != -1) {
+				length += Math.hypot(cell % numCols - prev % numCols, cell / numCols - prev / numCols);
+			}
+			prev = cell;
+		}
+		return length;
+	}
+
+	private PrintWriter openOutput() throws IOException {
+		String fileName = options.get("out");
+		if (fileName == null) {
+			return new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		}
+		return new PrintWriter(Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8));
+	}
+}
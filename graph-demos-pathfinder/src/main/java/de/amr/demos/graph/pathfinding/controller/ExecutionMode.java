@@ -2,7 +2,7 @@ package de.amr.demos.graph.pathfinding.controller;
 
 public enum ExecutionMode {
 
-	MANUAL, VISIBLE, ALL;
+	MANUAL, VISIBLE, ALL, ALL_PARALLEL;
 
 	@Override
 	public String toString() {
@@ -13,6 +13,8 @@ public enum ExecutionMode {
 			return "Auto-run displayed pathfinders";
 		case ALL:
 			return "Auto-run all pathfinders";
+		case ALL_PARALLEL:
+			return "Auto-run all pathfinders in parallel";
 		default:
 			return "";
 		}
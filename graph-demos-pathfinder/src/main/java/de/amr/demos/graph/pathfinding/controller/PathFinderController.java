@@ -7,15 +7,32 @@ import java.awt.Dimension;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
 import javax.swing.JComponent;
-import javax.swing.SwingWorker;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
+import org.tinylog.Logger;
+
+import de.amr.demos.graph.pathfinding.model.Heuristic;
+import de.amr.demos.graph.pathfinding.model.MapEdit;
+import de.amr.demos.graph.pathfinding.model.MapFile;
+import de.amr.demos.graph.pathfinding.model.MovingAiMap;
 import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
 import de.amr.demos.graph.pathfinding.model.PathFinderModel;
+import de.amr.demos.graph.pathfinding.model.PathFinderResult;
+import de.amr.demos.graph.pathfinding.model.SearchBudget;
+import de.amr.demos.graph.pathfinding.model.SearchStepsEvent;
 import de.amr.demos.graph.pathfinding.model.Tile;
 import de.amr.demos.graph.pathfinding.view.ConfigView;
 import de.amr.demos.graph.pathfinding.view.ConfigWindow;
@@ -54,6 +71,9 @@ public class PathFinderController {
 	private int animationDelay;
 	private boolean showingCost;
 	private boolean showingParent;
+	private boolean showingFlowField;
+	private boolean creatingLandmarks;
+	private final SearchScheduler scheduler = new SearchScheduler();
 
 	// actions
 
@@ -112,6 +132,14 @@ public class PathFinderController {
 		return getAction("Reset Scene", e -> resetScene());
 	}
 
+	public Action actionOpenMap() {
+		return getAction("Open Map...", e -> chooseMapFile(false).ifPresent(this::openMap));
+	}
+
+	public Action actionSaveMap() {
+		return getAction("Save Map...", e -> chooseMapFile(true).ifPresent(this::saveMap));
+	}
+
 	public Action actionSetSource() {
 		return getAction("Set Source", e -> {
 			JComponent trigger = (JComponent) e.getSource();
@@ -140,9 +168,17 @@ public class PathFinderController {
 		});
 	}
 
-	private class PathFinderAnimationTask extends SwingWorker<Void, Void> {
+	public Action actionToggleShowFlowField() {
+		return getAction("Show Flow Field", e -> {
+			showFlowField(!showingFlowField);
+		});
+	}
+
+	/*
+	 * Animated run of a path finder, executed by the search scheduler.
+	 */
+	private class PathFinderAnimationTask implements Runnable {
 
-		private final StopWatch watch = new StopWatch();
 		private final int pathFinderIndex;
 		private final MapView mapView;
 
@@ -152,19 +188,20 @@ public class PathFinderController {
 		}
 
 		@Override
-		protected Void doInBackground() throws Exception {
+		public void run() {
 			PathFinderAnimation animation = mapView.new PathFinderAnimation();
 			animation.getDelay().setMillis(PathFinderController.this::getAnimationDelay);
-			watch.start();
-			model.runPathFinder(pathFinderIndex, animation);
-			return null;
+			try {
+				model.runPathFinder(pathFinderIndex, animation);
+			} finally {
+				animation.finish();
+			}
 		}
 
-		@Override
-		protected void done() {
-			watch.stop();
-			ObservableGraphSearch pathFinder = model.getPathFinder(pathFinderIndex);
-			model.setResult(pathFinder, pathFinder.buildPath(pathFinder.getTarget()), watch.getMillis());
+		/*
+		 * The result has been stored by the model, including the termination of a stopped search.
+		 */
+		public void done() {
 			mapView.updateView();
 			mapsWindow.updateWindow();
 		}
@@ -207,6 +244,17 @@ public class PathFinderController {
 		mapsWindow.setLocation(configWindow.getWidth(), 0);
 		mapsWindow.pack();
 
+		// both windows exit the application when closed, stop the searches before
+		WindowAdapter shutdownOnClose = new WindowAdapter() {
+
+			@Override
+			public void windowClosing(WindowEvent e) {
+				scheduler.shutdown();
+			}
+		};
+		configWindow.addWindowListener(shutdownOnClose);
+		mapsWindow.addWindowListener(shutdownOnClose);
+
 		configWindow.setVisible(true);
 		mapsWindow.setVisible(true);
 	}
@@ -246,12 +294,32 @@ public class PathFinderController {
 	}
 
 	private void updateViews() {
+		createLandmarksInBackground();
 		configView.updateView();
 		leftMapView.updateView();
 		rightMapView.updateView();
 		mapsWindow.updateWindow();
 	}
 
+	/*
+	 * Creates missing landmarks for the ALT heuristic outside of the event dispatch thread and shows
+	 * them in the config view when they are ready.
+	 */
+	private void createLandmarksInBackground() {
+		if (model.getHeuristic() != Heuristic.ALT || model.getLandmarksFallback() != null
+				|| model.getLandmarksIfCreated() != null || creatingLandmarks) {
+			return;
+		}
+		creatingLandmarks = true;
+		Thread.ofPlatform().daemon().name("landmarks").start(() -> {
+			model.getLandmarks();
+			SwingUtilities.invokeLater(() -> {
+				creatingLandmarks = false;
+				configView.updateView();
+			});
+		});
+	}
+
 	private void updateMaps(boolean updateViews) {
 		leftMapView.updateMap(updateViews);
 		rightMapView.updateMap(updateViews);
@@ -266,6 +334,7 @@ public class PathFinderController {
 	}
 
 	public void updatePathFinderResults() {
+		cancelSearches();
 		switch (executionMode) {
 		case MANUAL:
 			model.clearResult(leftPathFinderIndex);
@@ -282,6 +351,9 @@ public class PathFinderController {
 		case ALL:
 			model.runAllPathFinders();
 			break;
+		case ALL_PARALLEL:
+			model.runAllPathFindersParallel();
+			break;
 		default:
 			break;
 		}
@@ -291,9 +363,18 @@ public class PathFinderController {
 	// animated execution
 
 	private void runPathFinderAnimation(int pathFinderIndex, MapView mapView) {
-		mapView.getCanvas().clear();
-		mapView.getCanvas().drawGrid();
-		new PathFinderAnimationTask(pathFinderIndex, mapView).execute();
+		mapView.updateView();
+		PathFinderAnimationTask task = new PathFinderAnimationTask(pathFinderIndex, mapView);
+		scheduler.submit(task, task::done);
+	}
+
+	/**
+	 * Cancels the path finder animations and searches in progress and waits until they have stopped.
+	 * Called before the map or the path finders change and before new runs are started.
+	 */
+	public void cancelSearches() {
+		model.cancelSearches();
+		scheduler.cancelAll();
 	}
 
 	public synchronized int getAnimationDelay() {
@@ -305,6 +386,7 @@ public class PathFinderController {
 	}
 
 	public void runPathFinderAnimations() {
+		cancelSearches();
 		model.clearResult(leftPathFinderIndex);
 		model.clearResult(rightPathFinderIndex);
 		runPathFinderAnimation(leftPathFinderIndex, leftMapView);
@@ -332,17 +414,37 @@ public class PathFinderController {
 
 	public void runSingleFirstStep(int pathFinderIndex) {
 		model.clearResult(pathFinderIndex);
+		SearchStepsEvent event = new SearchStepsEvent();
+		event.begin();
 		model.getPathFinder(pathFinderIndex).start(model.getSource(), model.getTarget());
+		event.end();
+		if (event.shouldCommit()) {
+			event.algorithm = model.getResultAtIndex(pathFinderIndex).getEffectivePathFinderName();
+			event.started = true;
+			event.commit();
+		}
 	}
 
 	private Path runSingleNumSteps(MapView mapView, ObservableGraphSearch pathFinder, int numSteps) {
+		SearchStepsEvent event = new SearchStepsEvent();
+		event.begin();
 		Path path = pathFinder.buildPath(model.getTarget());
+		int executedSteps = 0;
 		for (int n = numSteps; n > 0 && path == Path.NULL && pathFinder.canExplore(); --n) {
+			++executedSteps;
 			if (pathFinder.exploreVertex()) {
 				path = pathFinder.buildPath(model.getTarget());
 				break;
 			}
 		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.algorithm = model.getResult(pathFinder).map(PathFinderResult::getEffectivePathFinderName).orElse("");
+			event.requestedSteps = numSteps;
+			event.executedSteps = executedSteps;
+			event.pathFound = path != Path.NULL;
+			event.commit();
+		}
 		model.setResult(pathFinder, path, 0);
 		mapView.updateView();
 		return path;
@@ -351,18 +453,101 @@ public class PathFinderController {
 	// other actions
 
 	public void resetScene() {
+		cancelSearches();
 		model.clearMap();
 		model.clearResults();
 		updateMaps(false);
 		updatePathFinderResults();
 	}
 
+	private Optional<File> chooseMapFile(boolean save) {
+		JFileChooser chooser = new JFileChooser();
+		if (save) {
+			chooser.setFileFilter(new FileNameExtensionFilter("Path finder maps (*" + MapFile.EXTENSION + ")",
+					MapFile.EXTENSION.substring(1)));
+		} else {
+			chooser.setFileFilter(new FileNameExtensionFilter(
+					"Path finder maps (*" + MapFile.EXTENSION + "), Moving AI maps (*" + MovingAiMap.EXTENSION + ")",
+					MapFile.EXTENSION.substring(1), MovingAiMap.EXTENSION.substring(1)));
+		}
+		int answer = save ? chooser.showSaveDialog(mapsWindow) : chooser.showOpenDialog(mapsWindow);
+		if (answer != JFileChooser.APPROVE_OPTION) {
+			return Optional.empty();
+		}
+		File file = chooser.getSelectedFile();
+		if (save && !file.getName().endsWith(MapFile.EXTENSION)) {
+			file = new File(file.getPath() + MapFile.EXTENSION);
+		}
+		return Optional.of(file);
+	}
+
+	/**
+	 * Opens a binary map file or imports a Moving AI map ({@value MovingAiMap#EXTENSION}).
+	 * 
+	 * @param file map file
+	 */
+	public void openMap(File file) {
+		cancelSearches();
+		try {
+			StopWatch watch = new StopWatch();
+			watch.start();
+			model.setMap(file.getName().endsWith(MovingAiMap.EXTENSION) ? MovingAiMap.read(file.toPath())
+					: MapFile.read(file.toPath()));
+			watch.stop();
+			Logger.info("Map loaded from '%s' in %.1f ms", file, watch.getMillis());
+		} catch (IOException | IllegalArgumentException x) {
+			Logger.error(x, "Could not load map from '%s'", file);
+			JOptionPane.showMessageDialog(mapsWindow, x.getMessage(), "Open Map", JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		model.clearResults();
+		updateMaps(false);
+		updatePathFinderResults();
+	}
+
+	public void saveMap(File file) {
+		try {
+			StopWatch watch = new StopWatch();
+			watch.start();
+			MapFile.write(model, file.toPath());
+			watch.stop();
+			Logger.info("Map saved to '%s' in %.1f ms", file, watch.getMillis());
+		} catch (IOException x) {
+			Logger.error(x, "Could not save map to '%s'", file);
+			JOptionPane.showMessageDialog(mapsWindow, x.getMessage(), "Save Map", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
 	public void changeExecutionMode(ExecutionMode executionMode) {
 		this.executionMode = executionMode;
 		updatePathFinderResults();
 	}
 
+	public void changeHeuristic(Heuristic heuristic) {
+		model.setHeuristic(heuristic);
+		model.clearResults();
+		updatePathFinderResults();
+	}
+
+	public void changeMeasurement(int warmupRuns, int timedRuns) {
+		model.setMeasurement(warmupRuns, timedRuns);
+		model.clearResults();
+		updatePathFinderResults();
+	}
+
+	/**
+	 * @param maxExpansions   maximum number of expansions per run, 0 for unlimited
+	 * @param timeLimitMillis maximum running time per run in milliseconds, 0 for unlimited
+	 */
+	public void changeSearchBudget(long maxExpansions, long timeLimitMillis) {
+		cancelSearches();
+		model.setSearchBudget(SearchBudget.ofMillis(maxExpansions, timeLimitMillis));
+		model.clearResults();
+		updatePathFinderResults();
+	}
+
 	public void changeMapSize(int size) {
+		cancelSearches();
 		model.setMapSize(size);
 		model.clearResults();
 		updateMaps(false);
@@ -370,6 +555,7 @@ public class PathFinderController {
 	}
 
 	public void changeTopology(TopologySelection topology) {
+		cancelSearches();
 		model.setMapTopology(topology == TopologySelection._4_NEIGHBORS ? Grid4Topology.get() : Grid8Topology.get());
 		model.clearResults();
 		updateMaps(false);
@@ -399,6 +585,18 @@ public class PathFinderController {
 		return showingParent;
 	}
 
+	public void showFlowField(boolean b) {
+		this.showingFlowField = b;
+		updateViews();
+	}
+
+	/**
+	 * @return if the flow field is shown, only the blocks style can show it
+	 */
+	public boolean isShowingFlowField() {
+		return showingFlowField && style == RenderingStyle.BLOCKS;
+	}
+
 	public void setSource(int source) {
 		if (model.getMap().get(source) != WALL) {
 			model.setSource(source);
@@ -414,21 +612,53 @@ public class PathFinderController {
 	}
 
 	public void setTileAt(int cell, Tile tile) {
-		if (cell != model.getSource() && cell != model.getTarget()) {
-			model.setMapContent(cell, tile);
-			if (executionMode == ExecutionMode.MANUAL) {
-				// if path finder was already executed, clear it
-				if (getLeftPathFinder().getState(model.getSource()) == TraversalState.COMPLETED) {
-					model.clearResults();
-					leftMapView.updateView();
-					rightMapView.updateView();
-				}
-				leftMapView.updateMapCell(cell);
-				rightMapView.updateMapCell(cell);
-			} else {
-				updatePathFinderResults();
+		if (editMap(new MapEdit(model.getMap()).set(cell, tile)) && executionMode != ExecutionMode.MANUAL) {
+			updatePathFinderResults();
+		}
+	}
+
+	/**
+	 * Paints a brush stroke between two cells as one map edit. The path finders are not run, the caller
+	 * calls {@link #updatePathFinderResults()} when the stroke ends.
+	 * 
+	 * @param fromCell first cell of the stroke
+	 * @param toCell   last cell of the stroke
+	 * @param tile     new content of the stroke cells
+	 */
+	public void paintStroke(int fromCell, int toCell, Tile tile) {
+		editMap(new MapEdit(model.getMap()).stroke(fromCell, toCell, tile));
+	}
+
+	/*
+	 * Applies the edit except for the source and target cell and updates the map views. Returns if the
+	 * map has changed.
+	 */
+	private boolean editMap(MapEdit edit) {
+		cancelSearches();
+		edit.exclude(model.getSource()).exclude(model.getTarget());
+		if (model.applyEdit(edit) == 0) {
+			return false;
+		}
+		if (executionMode == ExecutionMode.MANUAL
+				&& getLeftPathFinder().getState(model.getSource()) == TraversalState.COMPLETED) {
+			// if path finder was already executed, clear it
+			model.clearResults();
+			leftMapView.updateView();
+			rightMapView.updateView();
+		} else if (isShowingFlowField()) {
+			// a changed cell can change flow directions far away, redraw only the cells that changed
+			boolean cellsOnly = model.getFlowField().drainChangedCells(cell -> {
+				leftMapView.redrawCell(cell);
+				rightMapView.redrawCell(cell);
+			});
+			if (!cellsOnly) {
+				leftMapView.updateView();
+				rightMapView.updateView();
 			}
 		}
+		leftMapView.updateMapChanges();
+		rightMapView.updateMapChanges();
+		return true;
 	}
 
 	public void flipTileAt(int cell) {
@@ -0,0 +1,156 @@
+package de.amr.demos.graph.pathfinding.controller;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.swing.SwingUtilities;
+
+import org.tinylog.Logger;
+
+/**
+ * Runs searches in the background, each on its own virtual thread.
+ * <p>
+ * Animated searches spend most of their time sleeping in the animation delay. A sleeping virtual
+ * thread does not occupy a platform thread, so any number of animations can run at once. The searches
+ * must not sleep inside {@code synchronized} code, a virtual thread keeps its carrier thread there.
+ * Searches shared with the event dispatch thread, like the LPA* search, use a
+ * {@link java.util.concurrent.locks.ReentrantLock} instead.
+ * <p>
+ * When a search has finished, its completion action runs on the event dispatch thread unless the
+ * scheduler has been cancelled meanwhile. Cancelling waits until the cancelled searches have left
+ * the search code, so the map and the data derived from it can be changed afterwards.
+ *
+ * @author Armin Reichert
+ */
+public class SearchScheduler {
+
+	private final ExecutorService executor = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0).factory());
+	/** Maximum time {@link #cancelAll()} waits for the cancelled searches to stop. */
+	public static final long CANCEL_TIMEOUT_MILLIS = 2000;
+
+	private final Set<Future<?>> running = ConcurrentHashMap.newKeySet();
+	private final ReentrantLock activeLock = new ReentrantLock();
+	private final Condition noneActive = activeLock.newCondition();
+	// searches submitted and not yet stopped, including those that have not started yet
+	private int numActive;
+	private volatile long generation;
+
+	/**
+	 * Starts a search.
+	 *
+	 * @param search the search, runs on a virtual thread
+	 * @param onDone completion action, runs on the event dispatch thread
+	 * @return future of the search
+	 */
+	public Future<?> submit(Runnable search, Runnable onDone) {
+		long submitGeneration = generation;
+		// a search is either run or dropped by cancelAll(), whichever comes first
+		AtomicBoolean claimed = new AtomicBoolean();
+		Runnable guardedSearch = () -> {
+			if (claimed.compareAndSet(false, true)) {
+				try {
+					search.run();
+				} finally {
+					stopped();
+				}
+			}
+		};
+		FutureTask<Void> task = new FutureTask<>(guardedSearch, null) {
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				if (claimed.compareAndSet(false, true)) {
+					stopped(); // never started
+				}
+				return cancelled;
+			}
+
+
+			@Override
+			protected void done() {
+				running.remove(this);
+				if (isCancelled()) {
+					return;
+				}
+				try {
+					get();
+				} catch (ExecutionException x) {
+					Logger.error(x.getCause(), "Search failed");
+					return;
+				} catch (InterruptedException x) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				SwingUtilities.invokeLater(() -> {
+					if (generation == submitGeneration) {
+						onDone.run();
+					}
+				});
+			}
+		};
+		activeLock.lock();
+		try {
+			++numActive;
+		} finally {
+			activeLock.unlock();
+		}
+		running.add(task);
+		executor.execute(task);
+		return task;
+	}
+
+	private void stopped() {
+		activeLock.lock();
+		try {
+			if (--numActive == 0) {
+				noneActive.signalAll();
+			}
+		} finally {
+			activeLock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels all searches and waits until they have stopped, at most
+	 * {@link #CANCEL_TIMEOUT_MILLIS}. Their threads are interrupted, which also ends a running
+	 * animation delay. Completion actions that are not yet executed are dropped.
+	 */
+	public void cancelAll() {
+		++generation;
+		running.forEach(task -> task.cancel(true));
+		activeLock.lock();
+		try {
+			long nanos = TimeUnit.MILLISECONDS.toNanos(CANCEL_TIMEOUT_MILLIS);
+			while (numActive > 0) {
+				if (nanos <= 0) {
+					Logger.warn("%d cancelled searches still running after %d ms", numActive, CANCEL_TIMEOUT_MILLIS);
+					return;
+				}
+				nanos = noneActive.awaitNanos(nanos);
+			}
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+		} finally {
+			activeLock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels all searches and stops the scheduler. Called when the application is closed.
+	 */
+	public void shutdown() {
+		cancelAll();
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,164 @@
+package de.amr.demos.graph.pathfinding.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+
+/**
+ * Counters and latency histogram of the queries answered by one path finder algorithm.
+ * <p>
+ * Queries per second are taken over the wall-clock time since the metrics were (re)started,
+ * expansions per second over the time spent in searches whose expansions are known.
+ *
+ * @author Armin Reichert
+ */
+public class AlgorithmMetrics implements AlgorithmMetricsMXBean {
+
+	private final PathFinderAlgorithm algorithm;
+	private final LongSupplier fnElapsedNanos;
+	private final LongAdder queries = new LongAdder();
+	private final LongAdder solved = new LongAdder();
+	private final LongAdder expansions = new LongAdder();
+	private final LongAdder expansionNanos = new LongAdder();
+	private final LongAccumulator peakOpenListSize = new LongAccumulator(Long::max, 0);
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	AlgorithmMetrics(PathFinderAlgorithm algorithm, LongSupplier fnElapsedNanos) {
+		this.algorithm = algorithm;
+		this.fnElapsedNanos = fnElapsedNanos;
+	}
+
+	/**
+	 * Records a search with known statistics.
+	 *
+	 * @param nanos            running time
+	 * @param numExpansions    number of expanded cells
+	 * @param peakOpenListSize peak size of the open list
+	 * @param pathFound        if a path has been found
+	 */
+	public void recordSearch(long nanos, long numExpansions, long peakOpenListSize, boolean pathFound) {
+		recordQuery(nanos, pathFound);
+		expansions.add(numExpansions);
+		expansionNanos.add(nanos);
+		this.peakOpenListSize.accumulate(peakOpenListSize);
+	}
+
+	/**
+	 * Records a query answered without statistics, e.g. in a batch of queries.
+	 *
+	 * @param nanos     running time
+	 * @param pathFound if a path has been found
+	 */
+	public void recordQuery(long nanos, boolean pathFound) {
+		queries.increment();
+		if (pathFound) {
+			solved.increment();
+		}
+		latency.record(nanos);
+	}
+
+	public void recordCacheHit() {
+		cacheHits.increment();
+	}
+
+	public void recordCacheMiss() {
+		cacheMisses.increment();
+	}
+
+	void reset() {
+		queries.reset();
+		solved.reset();
+		expansions.reset();
+		expansionNanos.reset();
+		peakOpenListSize.reset();
+		cacheHits.reset();
+		cacheMisses.reset();
+		latency.reset();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return algorithm.name();
+	}
+
+	@Override
+	public long getQueries() {
+		return queries.sum();
+	}
+
+	@Override
+	public long getSolved() {
+		return solved.sum();
+	}
+
+	@Override
+	public double getQueriesPerSecond() {
+		long nanos = fnElapsedNanos.getAsLong();
+		return nanos > 0 ? 1e9 * queries.sum() / nanos : 0;
+	}
+
+	@Override
+	public double getExpansionsPerSecond() {
+		long nanos = expansionNanos.sum();
+		return nanos > 0 ? 1e9 * expansions.sum() / nanos : 0;
+	}
+
+	@Override
+	public long getPeakOpenListSize() {
+		return peakOpenListSize.get();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		long hits = cacheHits.sum(), lookups = hits + cacheMisses.sum();
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return latency.getMeanNanos() / 1e6;
+	}
+
+	@Override
+	public double getMedianMillis() {
+		return latency.getNanosAtPercentile(50) / 1e6;
+	}
+
+	@Override
+	public double getP95Millis() {
+		return latency.getNanosAtPercentile(95) / 1e6;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latency.getNanosAtPercentile(99) / 1e6;
+	}
+
+	@Override
+	public double getP999Millis() {
+		return latency.getNanosAtPercentile(99.9) / 1e6;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latency.getMaxNanos() / 1e6;
+	}
+}
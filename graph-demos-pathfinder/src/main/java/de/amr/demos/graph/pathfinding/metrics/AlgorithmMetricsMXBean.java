@@ -0,0 +1,39 @@
+package de.amr.demos.graph.pathfinding.metrics;
+
+/**
+ * Management interface of the metrics of one path finder algorithm.
+ *
+ * @author Armin Reichert
+ */
+public interface AlgorithmMetricsMXBean {
+
+	String getAlgorithm();
+
+	long getQueries();
+
+	long getSolved();
+
+	double getQueriesPerSecond();
+
+	double getExpansionsPerSecond();
+
+	long getPeakOpenListSize();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	double getCacheHitRate();
+
+	double getMeanMillis();
+
+	double getMedianMillis();
+
+	double getP95Millis();
+
+	double getP99Millis();
+
+	double getP999Millis();
+
+	double getMaxMillis();
+}
@@ -0,0 +1,213 @@
+package de.amr.demos.graph.pathfinding.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.amr.demos.graph.pathfinding.model.MapChangeListener;
+import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
+
+/**
+ * Metrics registry of a path finder model: per-algorithm counters and latency histograms and the map
+ * edit rate, accumulated over all queries since the registry was created or reset.
+ * <p>
+ * The metrics can be published as platform MXBeans in the domain {@value #JMX_DOMAIN} (one bean for
+ * the totals and one per algorithm) and dumped periodically as text.
+ *
+ * @author Armin Reichert
+ */
+public class PathFinderMetrics implements PathFinderMetricsMXBean, MapChangeListener {
+
+	public static final String JMX_DOMAIN = "de.amr.pathfinding";
+
+	private final Map<PathFinderAlgorithm, AlgorithmMetrics> algorithms = new EnumMap<>(PathFinderAlgorithm.class);
+	private final LongAdder editedCells = new LongAdder();
+	private final LongAdder mapReplacements = new LongAdder();
+	private volatile long startNanos = System.nanoTime();
+	private ScheduledExecutorService dumpScheduler;
+
+	public PathFinderMetrics() {
+		for (PathFinderAlgorithm algorithm : PathFinderAlgorithm.values()) {
+			algorithms.put(algorithm, new AlgorithmMetrics(algorithm, this::elapsedNanos));
+		}
+	}
+
+	private long elapsedNanos() {
+		return System.nanoTime() - startNanos;
+	}
+
+	public AlgorithmMetrics algorithm(PathFinderAlgorithm algorithm) {
+		return algorithms.get(algorithm);
+	}
+
+	// map edits
+
+	@Override
+	public void cellChanged(int cell) {
+		editedCells.increment();
+	}
+
+	@Override
+	public void cellsChanged(int[] cells) {
+		editedCells.add(cells.length);
+	}
+
+	@Override
+	public void mapReplaced() {
+		mapReplacements.increment();
+	}
+
+	// totals
+
+	@Override
+	public long getQueries() {
+		return algorithms.values().stream().mapToLong(AlgorithmMetrics::getQueries).sum();
+	}
+
+	@Override
+	public double getQueriesPerSecond() {
+		long nanos = elapsedNanos();
+		return nanos > 0 ? 1e9 * getQueries() / nanos : 0;
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		long hits = algorithms.values().stream().mapToLong(AlgorithmMetrics::getCacheHits).sum();
+		long misses = algorithms.values().stream().mapToLong(AlgorithmMetrics::getCacheMisses).sum();
+		return hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+	}
+
+	@Override
+	public long getEditedCells() {
+		return editedCells.sum();
+	}
+
+	@Override
+	public double getEditedCellsPerSecond() {
+		long nanos = elapsedNanos();
+		return nanos > 0 ? 1e9 * editedCells.sum() / nanos : 0;
+	}
+
+	@Override
+	public long getMapReplacements() {
+		return mapReplacements.sum();
+	}
+
+	@Override
+	public double getUptimeSeconds() {
+		return elapsedNanos() / 1e9;
+	}
+
+	@Override
+	public void reset() {
+		algorithms.values().forEach(AlgorithmMetrics::reset);
+		editedCells.reset();
+		mapReplacements.reset();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return text report with one line per algorithm that has answered queries
+	 */
+	@Override
+	public String getReport() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "Metrics after %.1f s: %d queries (%.1f/s), cache hit rate %.1f %%,"
+				+ " %d cells edited (%.1f/s), %d map replacements%n", getUptimeSeconds(), getQueries(),
+				getQueriesPerSecond(), 100 * getCacheHitRate(), getEditedCells(), getEditedCellsPerSecond(),
+				getMapReplacements()));
+		sb.append(String.format(Locale.ROOT, "%-16s %9s %9s %10s %12s %10s %9s %9s %9s %9s %9s %9s%n", "algorithm",
+				"queries", "solved", "queries/s", "expansions/s", "peak open", "hit rate", "mean ms", "p50 ms", "p95 ms",
+				"p99 ms", "max ms"));
+		for (AlgorithmMetrics m : algorithms.values()) {
+			if (m.getQueries() == 0 && m.getCacheHits() == 0) {
+				continue;
+			}
+			sb.append(String.format(Locale.ROOT,
+					"%-16s %9d %9d %10.1f %12.0f %10d %8.1f%% %9.3f %9.3f %9.3f %9.3f %9.3f%n", m.getAlgorithm(),
+					m.getQueries(), m.getSolved(), m.getQueriesPerSecond(), m.getExpansionsPerSecond(),
+					m.getPeakOpenListSize(), 100 * m.getCacheHitRate(), m.getMeanMillis(), m.getMedianMillis(),
+					m.getP95Millis(), m.getP99Millis(), m.getMaxMillis()));
+		}
+		return sb.toString();
+	}
+
+	// publishing
+
+	private static ObjectName totalsName() throws JMException {
+		return new ObjectName(JMX_DOMAIN + ":type=Metrics");
+	}
+
+	private static ObjectName algorithmName(PathFinderAlgorithm algorithm) throws JMException {
+		return new ObjectName(JMX_DOMAIN + ":type=AlgorithmMetrics,name=" + algorithm.name());
+	}
+
+	/**
+	 * Registers the metrics as platform MXBeans, replacing the beans of another registry.
+	 */
+	public void registerMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			unregisterMBeans();
+			server.registerMBean(this, totalsName());
+			for (Map.Entry<PathFinderAlgorithm, AlgorithmMetrics> entry : algorithms.entrySet()) {
+				server.registerMBean(entry.getValue(), algorithmName(entry.getKey()));
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register metrics MBeans", e);
+		}
+	}
+
+	public void unregisterMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(totalsName())) {
+				server.unregisterMBean(totalsName());
+			}
+			for (PathFinderAlgorithm algorithm : PathFinderAlgorithm.values()) {
+				if (server.isRegistered(algorithmName(algorithm))) {
+					server.unregisterMBean(algorithmName(algorithm));
+				}
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not unregister metrics MBeans", e);
+		}
+	}
+
+	/**
+	 * Starts dumping the report periodically on a daemon thread. A running dump is stopped.
+	 *
+	 * @param periodMillis period in milliseconds
+	 * @param out          receives the report
+	 */
+	public synchronized void startPeriodicDump(long periodMillis, Consumer<String> out) {
+		if (periodMillis <= 0) {
+			throw new IllegalArgumentException("Illegal dump period: " + periodMillis);
+		}
+		stopPeriodicDump();
+		dumpScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "metrics-dump");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumpScheduler.scheduleAtFixedRate(() -> out.accept(getReport()), periodMillis, periodMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopPeriodicDump() {
+		if (dumpScheduler != null) {
+			dumpScheduler.shutdownNow();
+			dumpScheduler = null;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package de.amr.demos.graph.pathfinding.metrics;
+
+/**
+ * Management interface of the metrics over all path finder algorithms.
+ *
+ * @author Armin Reichert
+ */
+public interface PathFinderMetricsMXBean {
+
+	long getQueries();
+
+	double getQueriesPerSecond();
+
+	double getCacheHitRate();
+
+	long getEditedCells();
+
+	double getEditedCellsPerSecond();
+
+	long getMapReplacements();
+
+	double getUptimeSeconds();
+
+	String getReport();
+
+	void reset();
+}
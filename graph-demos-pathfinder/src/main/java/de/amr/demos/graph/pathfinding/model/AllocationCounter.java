@@ -0,0 +1,45 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated by the current thread using the HotSpot extension of the thread MX
+ * bean. On JVMs without that extension, allocations are not counted.
+ *
+ * @author Armin Reichert
+ */
+public class AllocationCounter {
+
+	public static final long NOT_AVAILABLE = -1;
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		try {
+			if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+					&& bean.isThreadAllocatedMemorySupported()) {
+				if (!bean.isThreadAllocatedMemoryEnabled()) {
+					bean.setThreadAllocatedMemoryEnabled(true);
+				}
+				return bean;
+			}
+		} catch (UnsupportedOperationException | SecurityException e) {
+			// fall through
+		}
+		return null;
+	}
+
+	private AllocationCounter() {
+	}
+
+	public static boolean isSupported() {
+		return THREAD_BEAN != null;
+	}
+
+	/**
+	 * @return total number of bytes allocated by the current thread so far or {@link #NOT_AVAILABLE}
+	 */
+	public static long currentThreadAllocatedBytes() {
+		return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : NOT_AVAILABLE;
+	}
+}
@@ -0,0 +1,416 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import de.amr.graph.core.api.Edge;
+import de.amr.graph.core.api.UndirectedEdge;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridPosition;
+import de.amr.graph.grid.api.GridTopology;
+
+/**
+ * Compact grid map storing one bit per cell for walls. Edges are not stored but implied by the
+ * topology: two neighbor cells are connected iff none of them is a wall. Edge costs are stored as
+ * primitive values per direction. They are the Euclidean lengths of the moves and cannot be
+ * changed, because the searches on compact maps (jump point search, the Euclidean and landmark
+ * estimates) depend on them.
+ * <p>
+ * By default, diagonal moves may cut corners like in the grid graph. The rule of the Moving AI
+ * benchmarks, where a diagonal move needs both adjacent straight neighbors to be free, can be
+ * selected by {@link #setCornerCutting(boolean)}.
+ * <p>
+ * The map implements the grid graph interface such that the search algorithms can consume it like a
+ * {@code GridGraph<Tile, Double>}. Use {@link #edgeCost(int, int)} instead of
+ * {@link #getEdgeLabel(int, int)} to avoid boxing.
+ *
+ * @author Armin Reichert
+ */
+public class CompactGridMap implements GridGraph2D<Tile, Double> {
+
+	private final int numCols;
+	private final int numRows;
+	private final GridTopology topology;
+	private final long[] walls;
+	private static final double COST_TOLERANCE = 1e-9;
+
+	private final double[] dirCost;
+	// cost indexed by (dy + 1) * 3 + (dx + 1), avoids searching the direction
+	private final double[] deltaCost = new double[9];
+	private boolean cornerCutting = true;
+
+	public CompactGridMap(int numCols, int numRows, GridTopology topology) {
+		if (numCols <= 0 || numRows <= 0) {
+			throw new IllegalArgumentException(String.format("Illegal map size: %d x %d", numCols, numRows));
+		}
+		this.numCols = numCols;
+		this.numRows = numRows;
+		this.topology = Objects.requireNonNull(topology);
+		walls = new long[(int) (((long) numCols * numRows + 63) >>> 6)];
+		dirCost = new double[topology.dirCount()];
+		for (int dir = 0; dir < dirCost.length; ++dir) {
+			dirCost[dir] = Math.hypot(topology.dx(dir), topology.dy(dir));
+			deltaCost[(topology.dy(dir) + 1) * 3 + topology.dx(dir) + 1] = dirCost[dir];
+		}
+	}
+
+	// walls
+
+	public boolean isWall(int cell) {
+		return (walls[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public void setWall(int cell, boolean wall) {
+		if (wall) {
+			walls[cell >>> 6] |= 1L << cell;
+		} else {
+			walls[cell >>> 6] &= ~(1L << cell);
+		}
+	}
+
+	/**
+	 * @return the wall bitmap, bit {@code i} of word {@code i / 64} is set iff cell {@code i} is a wall
+	 */
+	public long[] wallBits() {
+		return walls;
+	}
+
+	/**
+	 * Replaces all walls at once.
+	 * 
+	 * @param bits wall bitmap in the format of {@link #wallBits()}
+	 */
+	public void setWallBits(long[] bits) {
+		if (bits.length != walls.length) {
+			throw new IllegalArgumentException(
+					String.format("Wall bitmap has %d words, map needs %d", bits.length, walls.length));
+		}
+		System.arraycopy(bits, 0, walls, 0, walls.length);
+	}
+
+	public boolean isPassable(int cell) {
+		return !isWall(cell);
+	}
+
+	// movement rule
+
+	public boolean isCornerCutting() {
+		return cornerCutting;
+	}
+
+	/**
+	 * Selects if diagonal moves may pass a wall corner. Path finders read the rule when they are
+	 * created.
+	 * 
+	 * @param cornerCutting if a diagonal move is allowed next to walls, else both straight neighbors
+	 *                      in the direction of the move must be free
+	 */
+	public void setCornerCutting(boolean cornerCutting) {
+		this.cornerCutting = cornerCutting;
+	}
+
+	/*
+	 * Checks the corner rule for a move between two free neighbor cells.
+	 */
+	private boolean isCornerFree(int col, int row, int dx, int dy) {
+		return cornerCutting || dx == 0 || dy == 0 || !isWall(cell(col + dx, row)) && !isWall(cell(col, row + dy));
+	}
+
+	// edge costs
+
+	public double getDirectionCost(int dir) {
+		return dirCost[dir];
+	}
+
+	/**
+	 * @param u cell
+	 * @param v neighbor cell of {@code u}
+	 * @return primitive cost of the edge between the cells
+	 */
+	public double edgeCost(int u, int v) {
+		return deltaCost[(row(v) - row(u) + 1) * 3 + col(v) - col(u) + 1];
+	}
+
+	// vertex labels
+
+	@Override
+	public Tile get(int v) {
+		return isWall(v) ? Tile.WALL : Tile.BLANK;
+	}
+
+	@Override
+	public void set(int v, Tile tile) {
+		setWall(v, Objects.requireNonNull(tile) == Tile.WALL);
+	}
+
+	@Override
+	public void clearVertexLabels() {
+		Arrays.fill(walls, 0);
+	}
+
+	@Override
+	public Tile getDefaultVertexLabel(int v) {
+		return Tile.BLANK;
+	}
+
+	@Override
+	public void setDefaultVertexLabel(Function<Integer, Tile> fnDefaultLabel) {
+		throw new UnsupportedOperationException("Default vertex label is always BLANK");
+	}
+
+	// edge labels
+
+	@Override
+	public Double getEdgeLabel(int u, int v) {
+		return edgeCost(u, v);
+	}
+
+	/**
+	 * Accepts the cost of the edge only if it is the fixed cost of its direction.
+	 * 
+	 * @throws IllegalArgumentException if the cost differs from the fixed cost
+	 */
+	@Override
+	public void setEdgeLabel(int u, int v, Double cost) {
+		checkEdgeCost(u, v, cost);
+	}
+
+	@Override
+	public void clearEdgeLabels() {
+		// edge costs are fixed
+	}
+
+	@Override
+	public Double getDefaultEdgeLabel(int u, int v) {
+		return edgeCost(u, v);
+	}
+
+	/**
+	 * Accepts a default edge label function that yields the fixed costs, e.g. the Euclidean distance.
+	 * The function is checked for one edge per direction.
+	 * 
+	 * @throws IllegalArgumentException if the function yields other costs
+	 */
+	@Override
+	public void setDefaultEdgeLabel(BiFunction<Integer, Integer, Double> fnDefaultLabel) {
+		for (int dir = 0; dir < dirCost.length; ++dir) {
+			int dx = topology.dx(dir), dy = topology.dy(dir);
+			int col = Math.max(0, -dx), row = Math.max(0, -dy);
+			if (isValidCol(col) && isValidRow(row) && isValidCol(col + dx) && isValidRow(row + dy)) {
+				int u = cell(col, row), v = cell(col + dx, row + dy);
+				checkEdgeCost(u, v, fnDefaultLabel.apply(u, v));
+			}
+		}
+	}
+
+	private void checkEdgeCost(int u, int v, Double cost) {
+		if (!areNeighbors(u, v)) {
+			throw new IllegalArgumentException(String.format("Cells %d and %d are not neighbors", u, v));
+		}
+		if (cost == null || Math.abs(cost - edgeCost(u, v)) > COST_TOLERANCE) {
+			throw new IllegalArgumentException(
+					String.format("Edge (%d, %d) has fixed cost %.4f, cannot set %s", u, v, edgeCost(u, v), cost));
+		}
+	}
+
+	// graph
+
+	@Override
+	public IntStream vertices() {
+		return IntStream.range(0, numVertices());
+	}
+
+	@Override
+	public int numVertices() {
+		return numCols * numRows;
+	}
+
+	@Override
+	public Stream<Edge> edges() {
+		// each edge is reported once, from its cell with the smaller index
+		return vertices().boxed()
+				.flatMap(u -> adj(u).filter(v -> u < v).mapToObj(v -> (Edge) new UndirectedEdge(u, v)));
+	}
+
+	@Override
+	public int numEdges() {
+		long count = vertices().mapToLong(this::degree).sum() / 2;
+		return (int) count;
+	}
+
+	@Override
+	public void addVertex(int v) {
+		throw new UnsupportedOperationException("Grid vertex set is fixed");
+	}
+
+	@Override
+	public void removeVertex(int v) {
+		throw new UnsupportedOperationException("Grid vertex set is fixed");
+	}
+
+	@Override
+	public IntStream adj(int v) {
+		if (isWall(v)) {
+			return IntStream.empty();
+		}
+		return neighbors(v).filter(w -> !isWall(w) && isCornerFree(col(v), row(v), col(w) - col(v), row(w) - row(v)));
+	}
+
+	@Override
+	public boolean adjacent(int v, int w) {
+		return areNeighbors(v, w) && !isWall(v) && !isWall(w)
+				&& isCornerFree(col(v), row(v), col(w) - col(v), row(w) - row(v));
+	}
+
+	@Override
+	public int degree(int v) {
+		if (isWall(v)) {
+			return 0;
+		}
+		int col = col(v), row = row(v), degree = 0;
+		for (int dir = 0; dir < dirCost.length; ++dir) {
+			int c = col + topology.dx(dir), r = row + topology.dy(dir);
+			if (isValidCol(c) && isValidRow(r) && !isWall(cell(c, r))
+					&& isCornerFree(col, row, topology.dx(dir), topology.dy(dir))) {
+				++degree;
+			}
+		}
+		return degree;
+	}
+
+	@Override
+	public void addEdge(int v, int w) {
+		if (!adjacent(v, w)) {
+			throw new IllegalStateException(String.format("Cannot add edge (%d, %d), edges are implied by walls", v, w));
+		}
+	}
+
+	@Override
+	public void addEdge(int v, int w, Double cost) {
+		checkEdgeCost(v, w, cost);
+		addEdge(v, w);
+	}
+
+	@Override
+	public void removeEdge(int v, int w) {
+		if (adjacent(v, w)) {
+			throw new IllegalStateException(String.format("Cannot remove edge (%d, %d), edges are implied by walls", v, w));
+		}
+	}
+
+	@Override
+	public void removeEdges() {
+		throw new UnsupportedOperationException("Edges are implied by walls");
+	}
+
+	@Override
+	public Optional<Edge> edge(int v, int w) {
+		return adjacent(v, w) ? Optional.of(new UndirectedEdge(v, w)) : Optional.empty();
+	}
+
+	@Override
+	public boolean isDirected() {
+		return false;
+	}
+
+	// grid
+
+	@Override
+	public int numCols() {
+		return numCols;
+	}
+
+	@Override
+	public int numRows() {
+		return numRows;
+	}
+
+	@Override
+	public GridTopology getTopology() {
+		return topology;
+	}
+
+	@Override
+	public int cell(int col, int row) {
+		return row * numCols + col;
+	}
+
+	@Override
+	public int cell(GridPosition position) {
+		switch (position) {
+		case TOP_LEFT:
+			return cell(0, 0);
+		case TOP_RIGHT:
+			return cell(numCols - 1, 0);
+		case CENTER:
+			return cell(numCols / 2, numRows / 2);
+		case BOTTOM_LEFT:
+			return cell(0, numRows - 1);
+		case BOTTOM_RIGHT:
+			return cell(numCols - 1, numRows - 1);
+		default:
+			throw new IllegalArgumentException("Unknown position: " + position);
+		}
+	}
+
+	@Override
+	public int col(int cell) {
+		return cell % numCols;
+	}
+
+	@Override
+	public int row(int cell) {
+		return cell / numCols;
+	}
+
+	@Override
+	public boolean isValidCol(int col) {
+		return 0 <= col && col < numCols;
+	}
+
+	@Override
+	public boolean isValidRow(int row) {
+		return 0 <= row && row < numRows;
+	}
+
+	@Override
+	public IntStream neighbors(int v) {
+		int col = col(v), row = row(v);
+		return IntStream.range(0, dirCost.length)
+				.filter(dir -> isValidCol(col + topology.dx(dir)) && isValidRow(row + topology.dy(dir)))
+				.map(dir -> cell(col + topology.dx(dir), row + topology.dy(dir)));
+	}
+
+	@Override
+	public Optional<Integer> neighbor(int v, int dir) {
+		int col = col(v) + topology.dx(dir), row = row(v) + topology.dy(dir);
+		return isValidCol(col) && isValidRow(row) ? Optional.of(cell(col, row)) : Optional.empty();
+	}
+
+	@Override
+	public boolean areNeighbors(int u, int v) {
+		return direction(u, v).isPresent();
+	}
+
+	@Override
+	public OptionalInt direction(int u, int v) {
+		int dx = col(v) - col(u), dy = row(v) - row(u);
+		for (int dir = 0; dir < dirCost.length; ++dir) {
+			if (topology.dx(dir) == dx && topology.dy(dir) == dy) {
+				return OptionalInt.of(dir);
+			}
+		}
+		return OptionalInt.empty();
+	}
+
+	@Override
+	public void fill() {
+		// all passable neighbors are always connected
+	}
+}
@@ -0,0 +1,25 @@
+package de.amr.demos.graph.pathfinding.model;
+
+/**
+ * Enum type for the heuristics used by A*, bidirectional A* and best-first search.
+ * 
+ * @author Armin Reichert
+ */
+public enum Heuristic {
+	/** Straight-line distance. */
+	EUCLIDEAN,
+	/** Lower bounds from precomputed landmark distances ("ALT"). */
+	ALT;
+
+	@Override
+	public String toString() {
+		switch (this) {
+		case EUCLIDEAN:
+			return "Euclidean distance";
+		case ALT:
+			return "Landmarks (ALT)";
+		default:
+			return "";
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.function.ToDoubleBiFunction;
+
+import de.amr.demos.graph.pathfinding.search.CellEstimate;
+
+/**
+ * Counts the calls of a heuristic and times every {@value #SAMPLE_INTERVAL}th call. Used for the
+ * phase timings of {@link SearchRunEvent}. Not thread-safe, a probe belongs to one path finder.
+ *
+ * @author Armin Reichert
+ */
+public class HeuristicProbe {
+
+	public static final int SAMPLE_INTERVAL = 16;
+
+	private long calls;
+	private long sampledCalls;
+	private long sampledNanos;
+
+	public ToDoubleBiFunction<Integer, Integer> wrap(ToDoubleBiFunction<Integer, Integer> fnEstimate) {
+		return (u, v) -> {
+			if (calls++ % SAMPLE_INTERVAL != 0) {
+				return fnEstimate.applyAsDouble(u, v);
+			}
+			long start = System.nanoTime();
+			double estimate = fnEstimate.applyAsDouble(u, v);
+			sampledNanos += System.nanoTime() - start;
+			++sampledCalls;
+			return estimate;
+		};
+	}
+
+	public CellEstimate wrapCellEstimate(CellEstimate fnEstimate) {
+		return (u, v) -> {
+			if (calls++ % SAMPLE_INTERVAL != 0) {
+				return fnEstimate.estimate(u, v);
+			}
+			long start = System.nanoTime();
+			double estimate = fnEstimate.estimate(u, v);
+			sampledNanos += System.nanoTime() - start;
+			++sampledCalls;
+			return estimate;
+		};
+	}
+
+	public void reset() {
+		calls = 0;
+		sampledCalls = 0;
+		sampledNanos = 0;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return total time spent in the heuristic, extrapolated from the sampled calls
+	 */
+	public long getEstimatedNanos() {
+		return sampledCalls == 0 ? 0 : sampledNanos * calls / sampledCalls;
+	}
+}
@@ -0,0 +1,165 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the changes of the map content.
+ * <p>
+ * Every change increases the map version. The most recent changed cells are kept in a bounded log,
+ * so a consumer that remembers the version it has last seen can ask for the region changed since
+ * then ({@link #changesSince(long)}) and only update that region. Listeners are notified of each
+ * change as it happens.
+ * 
+ * @author Armin Reichert
+ */
+public class MapChangeJournal {
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Cells changed since some version and their bounding rectangle.
+	 * 
+	 * @param cells  changed cells, each cell once
+	 * @param minCol minimum column of changed cells
+	 * @param minRow minimum row of changed cells
+	 * @param maxCol maximum column of changed cells
+	 * @param maxRow maximum row of changed cells
+	 */
+	public record DirtyRegion(int[] cells, int minCol, int minRow, int maxCol, int maxRow) {
+
+		public static final DirtyRegion EMPTY = new DirtyRegion(new int[0], 0, 0, -1, -1);
+
+		public boolean isEmpty() {
+			return cells.length == 0;
+		}
+	}
+
+	private final List<MapChangeListener> listeners = new CopyOnWriteArrayList<>();
+	private final int[] log;
+	private long version;
+	// version before the oldest change in the log (or before the last map replacement)
+	private long baseVersion;
+	private int numCols = 1;
+
+	public MapChangeJournal() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity number of changed cells kept in the log
+	 */
+	public MapChangeJournal(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal journal capacity: " + capacity);
+		}
+		log = new int[capacity];
+	}
+
+	public void addListener(MapChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(MapChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return current map version, increased by every change
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Records the change of a cell and notifies the listeners.
+	 * 
+	 * @param cell changed cell
+	 */
+	public void cellChanged(int cell) {
+		synchronized (this) {
+			record(cell);
+		}
+		for (MapChangeListener listener : listeners) {
+			listener.cellChanged(cell);
+		}
+	}
+
+	/**
+	 * Records the change of several cells and notifies the listeners once.
+	 * 
+	 * @param cells changed cells, each cell once
+	 */
+	public void cellsChanged(int[] cells) {
+		if (cells.length == 0) {
+			return;
+		}
+		synchronized (this) {
+			for (int cell : cells) {
+				record(cell);
+			}
+		}
+		for (MapChangeListener listener : listeners) {
+			listener.cellsChanged(cells);
+		}
+	}
+
+	private void record(int cell) {
+		log[(int) (version % log.length)] = cell;
+		++version;
+		if (version - baseVersion > log.length) {
+			baseVersion = version - log.length;
+		}
+	}
+
+	/**
+	 * Records that the map has been replaced or cleared and notifies the listeners. Earlier changes
+	 * can no longer be queried.
+	 * 
+	 * @param numCols number of columns of the new map
+	 */
+	public void mapReplaced(int numCols) {
+		synchronized (this) {
+			this.numCols = numCols;
+			++version;
+			baseVersion = version;
+		}
+		for (MapChangeListener listener : listeners) {
+			listener.mapReplaced();
+		}
+	}
+
+	/**
+	 * @param sinceVersion a version returned earlier by {@link #getVersion()}
+	 * @return the region changed after the given version or nothing if the journal does not cover all
+	 *         changes since then (the map has been replaced or the log has overflowed)
+	 */
+	public synchronized Optional<DirtyRegion> changesSince(long sinceVersion) {
+		if (sinceVersion < baseVersion || sinceVersion > version) {
+			return Optional.empty();
+		}
+		if (sinceVersion == version) {
+			return Optional.of(DirtyRegion.EMPTY);
+		}
+		BitSet seen = new BitSet();
+		int[] cells = new int[(int) (version - sinceVersion)];
+		int n = 0;
+		int minCol = Integer.MAX_VALUE, minRow = Integer.MAX_VALUE, maxCol = -1, maxRow = -1;
+		for (long v = sinceVersion; v < version; ++v) {
+			int cell = log[(int) (v % log.length)];
+			if (!seen.get(cell)) {
+				seen.set(cell);
+				cells[n++] = cell;
+				int col = cell % numCols, row = cell / numCols;
+				minCol = Math.min(minCol, col);
+				minRow = Math.min(minRow, row);
+				maxCol = Math.max(maxCol, col);
+				maxRow = Math.max(maxRow, row);
+			}
+		}
+		return Optional.of(new DirtyRegion(Arrays.copyOf(cells, n), minCol, minRow, maxCol, maxRow));
+	}
+}
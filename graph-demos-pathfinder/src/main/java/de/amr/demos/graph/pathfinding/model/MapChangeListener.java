@@ -0,0 +1,35 @@
+package de.amr.demos.graph.pathfinding.model;
+
+/**
+ * Listener for changes of the map content, see {@link MapChangeJournal}.
+ * 
+ * @author Armin Reichert
+ */
+public interface MapChangeListener {
+
+	/**
+	 * Called after the content of a cell has changed.
+	 * 
+	 * @param cell changed cell
+	 */
+	void cellChanged(int cell);
+
+	/**
+	 * Called after the content of several cells has changed at once. By default, each cell is handled
+	 * by {@link #cellChanged(int)}. Listeners that can update more efficiently for a whole region
+	 * override this method.
+	 * 
+	 * @param cells changed cells, each cell once
+	 */
+	default void cellsChanged(int[] cells) {
+		for (int cell : cells) {
+			cellChanged(cell);
+		}
+	}
+
+	/**
+	 * Called after the map has been replaced or cleared. All cells may have changed.
+	 */
+	default void mapReplaced() {
+	}
+}
@@ -0,0 +1,190 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * A set of cell changes that is applied to the map at once, see
+ * {@link PathFinderModel#applyEdit(MapEdit)}.
+ * <p>
+ * Cells can be added as rectangles, brush strokes or bitmaps. If a cell is added more than once, the
+ * last tile wins. Cells outside of the map are ignored.
+ *
+ * @author Armin Reichert
+ */
+public class MapEdit {
+
+	private final int numCols;
+	private final int numRows;
+	private final BitSet cells = new BitSet();
+	private final BitSet walls = new BitSet();
+
+	/**
+	 * @param map map the edit will be applied to
+	 */
+	public MapEdit(GridGraph2D<Tile, ?> map) {
+		this(map.numCols(), map.numRows());
+	}
+
+	public MapEdit(int numCols, int numRows) {
+		this.numCols = numCols;
+		this.numRows = numRows;
+	}
+
+	public int numCols() {
+		return numCols;
+	}
+
+	public int numRows() {
+		return numRows;
+	}
+
+	/**
+	 * @return number of cells in this edit
+	 */
+	public int size() {
+		return cells.cardinality();
+	}
+
+	public boolean isEmpty() {
+		return cells.isEmpty();
+	}
+
+	/**
+	 * @param cell cell
+	 * @return if the cell is part of this edit
+	 */
+	public boolean contains(int cell) {
+		return cells.get(cell);
+	}
+
+	/**
+	 * @param cell cell of this edit
+	 * @return new content of the cell
+	 */
+	public Tile get(int cell) {
+		return walls.get(cell) ? Tile.WALL : Tile.BLANK;
+	}
+
+	/**
+	 * @param cell cell of this edit or -1
+	 * @return next cell of this edit with index greater or equal the given one or -1
+	 */
+	public int nextCell(int cell) {
+		return cells.nextSetBit(cell);
+	}
+
+	public MapEdit set(int cell, Tile tile) {
+		if (0 <= cell && cell < numCols * numRows) {
+			cells.set(cell);
+			walls.set(cell, isWall(tile));
+		}
+		return this;
+	}
+
+	public MapEdit set(int col, int row, Tile tile) {
+		if (0 <= col && col < numCols && 0 <= row && row < numRows) {
+			set(row * numCols + col, tile);
+		}
+		return this;
+	}
+
+	/**
+	 * Removes the cell from this edit, for example to protect the source and target cell.
+	 *
+	 * @param cell cell
+	 * @return this edit
+	 */
+	public MapEdit exclude(int cell) {
+		if (cell >= 0) {
+			cells.clear(cell);
+			walls.clear(cell);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets all cells of the given rectangle.
+	 *
+	 * @param col    left column
+	 * @param row    top row
+	 * @param width  number of columns
+	 * @param height number of rows
+	 * @param tile   new content
+	 * @return this edit
+	 */
+	public MapEdit fillRect(int col, int row, int width, int height, Tile tile) {
+		boolean wall = isWall(tile);
+		int minCol = Math.max(0, col), maxCol = Math.min(numCols, col + width);
+		for (int r = Math.max(0, row); r < Math.min(numRows, row + height); ++r) {
+			if (minCol < maxCol) {
+				cells.set(r * numCols + minCol, r * numCols + maxCol);
+				walls.set(r * numCols + minCol, r * numCols + maxCol, wall);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the cells of a brush stroke between two cells. Consecutive cells of the stroke share a side,
+	 * so a stroke of walls also blocks diagonal moves.
+	 *
+	 * @param fromCell first cell of the stroke
+	 * @param toCell   last cell of the stroke
+	 * @param tile     new content
+	 * @return this edit
+	 */
+	public MapEdit stroke(int fromCell, int toCell, Tile tile) {
+		int col = fromCell % numCols, row = fromCell / numCols;
+		int toCol = toCell % numCols, toRow = toCell / numCols;
+		int nx = Math.abs(toCol - col), ny = Math.abs(toRow - row);
+		int sx = Integer.signum(toCol - col), sy = Integer.signum(toRow - row);
+		set(col, row, tile);
+		for (int ix = 0, iy = 0; ix < nx || iy < ny;) {
+			// step in the direction whose next cell border is crossed first
+			if ((1L + 2 * ix) * ny < (1L + 2 * iy) * nx) {
+				col += sx;
+				++ix;
+			} else {
+				row += sy;
+				++iy;
+			}
+			set(col, row, tile);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the cells of a rectangle from a bitmap.
+	 *
+	 * @param col    left column
+	 * @param row    top row
+	 * @param width  number of columns of the bitmap
+	 * @param height number of rows of the bitmap
+	 * @param bitmap bit {@code y * width + x} tells if the cell at {@code (col + x, row + y)} becomes a
+	 *               wall
+	 * @return this edit
+	 */
+	public MapEdit bitmap(int col, int row, int width, int height, BitSet bitmap) {
+		Objects.requireNonNull(bitmap);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				set(col + x, row + y, bitmap.get(y * width + x) ? Tile.WALL : Tile.BLANK);
+			}
+		}
+		return this;
+	}
+
+	private static boolean isWall(Tile tile) {
+		switch (Objects.requireNonNull(tile)) {
+		case WALL:
+			return true;
+		case BLANK:
+			return false;
+		default:
+			throw new IllegalArgumentException("Unknown tile " + tile);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+
+/**
+ * Binary map file with one bit per cell.
+ * <p>
+ * Layout (little-endian):
+ * <ul>
+ * <li>{@code int} magic number {@code 0x50464D50} ("PFMP")</li>
+ * <li>{@code short} format version</li>
+ * <li>{@code short} number of neighbors of the topology (4 or 8)</li>
+ * <li>{@code int} number of columns, {@code int} number of rows</li>
+ * <li>{@code int} source cell, {@code int} target cell</li>
+ * <li>{@code long} map version at the time of writing</li>
+ * <li>wall bitmap as {@code long} words, bit {@code i % 64} of word {@code i / 64} is set iff cell
+ * {@code i} is a wall</li>
+ * </ul>
+ * The header is 32 bytes long, so the bitmap is aligned to words. Files are read and written through
+ * memory-mapped buffers: loading a map copies the bitmap with one bulk transfer and creates no
+ * objects per cell.
+ *
+ * @author Armin Reichert
+ */
+public class MapFile {
+
+	public static final String EXTENSION = ".pfmap";
+	public static final int MAGIC = 0x50464D50; // "PFMP"
+	public static final short FORMAT_VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * Map read from a file.
+	 *
+	 * @param numCols    number of columns
+	 * @param numRows    number of rows
+	 * @param topology   topology
+	 * @param source     source cell
+	 * @param target     target cell
+	 * @param mapVersion map version at the time of writing
+	 * @param walls      wall bitmap
+	 */
+	public record Content(int numCols, int numRows, GridTopology topology, int source, int target, long mapVersion,
+			long[] walls) {
+	}
+
+	private MapFile() {
+	}
+
+	/**
+	 * Writes the map of the model.
+	 *
+	 * @param model model
+	 * @param file  file path
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(PathFinderModel model, Path file) throws IOException {
+		long[] walls = model.getWallBits();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + 8L * walls.length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putShort(FORMAT_VERSION);
+			buffer.putShort((short) model.getMapTopology().dirCount());
+			buffer.putInt(model.getMap().numCols());
+			buffer.putInt(model.getMap().numRows());
+			buffer.putInt(model.getSource());
+			buffer.putInt(model.getTarget());
+			buffer.putLong(model.getMapVersion());
+			buffer.asLongBuffer().put(walls);
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Reads a map file.
+	 *
+	 * @param file file path
+	 * @return file content
+	 * @throws IOException if the file cannot be read or is no valid map file
+	 */
+	public static Content read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE) {
+				throw new IOException("Not a map file: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, fileSize);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a map file: " + file);
+			}
+			short formatVersion = buffer.getShort();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported map file version: " + formatVersion);
+			}
+			GridTopology topology = topology(buffer.getShort());
+			int numCols = buffer.getInt(), numRows = buffer.getInt();
+			int source = buffer.getInt(), target = buffer.getInt();
+			long mapVersion = buffer.getLong();
+			if (numCols <= 0 || numRows <= 0) {
+				throw new IOException(String.format("Illegal map size: %d x %d", numCols, numRows));
+			}
+			long numCells = (long) numCols * numRows;
+			if (source < 0 || source >= numCells || target < 0 || target >= numCells) {
+				throw new IOException(String.format("Illegal source/target: %d/%d", source, target));
+			}
+			int numWords = (int) ((numCells + 63) >>> 6);
+			if (fileSize != HEADER_SIZE + 8L * numWords) {
+				throw new IOException(String.format("Map file size %d does not match map size %d x %d", fileSize,
+						numCols, numRows));
+			}
+			long[] walls = new long[numWords];
+			buffer.asLongBuffer().get(walls);
+			// bits beyond the last cell are undefined
+			if (numCells % 64 != 0) {
+				walls[numWords - 1] &= (1L << numCells) - 1;
+			}
+			return new Content(numCols, numRows, topology, source, target, mapVersion, walls);
+		}
+	}
+
+	private static GridTopology topology(int dirCount) throws IOException {
+		switch (dirCount) {
+		case 4:
+			return Grid4Topology.get();
+		case 8:
+			return Grid8Topology.get();
+		default:
+			throw new IOException("Illegal topology: " + dirCount + " neighbors");
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package de.amr.demos.graph.pathfinding.model;
+
+/**
+ * Enum type for the available map representations.
+ * 
+ * @author Armin Reichert
+ */
+public enum MapRepresentation {
+	/** Grid graph with explicit edges and boxed edge labels. */
+	GRID_GRAPH,
+	/** One bit per cell for walls, edges implied by the topology. */
+	COMPACT;
+}
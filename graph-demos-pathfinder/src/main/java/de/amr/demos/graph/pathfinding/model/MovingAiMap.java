@@ -0,0 +1,118 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import de.amr.graph.grid.impl.Grid8Topology;
+
+/**
+ * Reader for maps in the format of the Moving AI grid benchmarks (movingai.com).
+ * <p>
+ * A map file starts with the header lines {@code type octile}, {@code height <h>},
+ * {@code width <w>} and {@code map}, followed by {@code h} lines of {@code w} characters. The
+ * characters '.', 'G' and 'S' are passable, all others ('@', 'O', 'T', 'W') are walls.
+ * <p>
+ * Maps of the demo are square, so a non-square map is padded with walls at the right or bottom.
+ * Cell {@code (x, y)} of the file keeps its coordinates. Note that the benchmark lengths assume that
+ * diagonal moves cannot cut corners, while the 8-neighbor topology of the demo allows them, so paths
+ * found here can be shorter than the published optimum. The scenario runner therefore searches
+ * Moving AI maps without corner cutting, see {@link CompactGridMap#setCornerCutting(boolean)}.
+ *
+ * @author Armin Reichert
+ */
+public class MovingAiMap {
+
+	public static final String EXTENSION = ".map";
+
+	private MovingAiMap() {
+	}
+
+	/**
+	 * @param c map character
+	 * @return if the character denotes a passable cell
+	 */
+	public static boolean isPassable(char c) {
+		return c == '.' || c == 'G' || c == 'S';
+	}
+
+	/**
+	 * Reads a map file. Source and target are the first and the last free cell.
+	 *
+	 * @param file file path
+	 * @return map content with 8-neighbor topology
+	 * @throws IOException if the file cannot be read or has an invalid format
+	 */
+	public static MapFile.Content read(Path file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+			int width = -1, height = -1;
+			String line;
+			while ((line = reader.readLine()) != null && !line.trim().equals("map")) {
+				String[] tokens = line.trim().split("\\s+");
+				if (tokens.length != 2) {
+					throw new IOException("Invalid header line: " + line);
+				}
+				switch (tokens[0]) {
+				case "type":
+					if (!tokens[1].equals("octile")) {
+						throw new IOException("Unsupported map type: " + tokens[1]);
+					}
+					break;
+				case "height":
+					height = parseSize(tokens[1]);
+					break;
+				case "width":
+					width = parseSize(tokens[1]);
+					break;
+				default:
+					throw new IOException("Invalid header line: " + line);
+				}
+			}
+			if (line == null || width == -1 || height == -1) {
+				throw new IOException("Incomplete map header in " + file);
+			}
+			int size = Math.max(width, height);
+			int numCells = size * size;
+			// all cells are walls until read as passable
+			long[] walls = new long[(numCells + 63) >>> 6];
+			Arrays.fill(walls, -1L);
+			if (numCells % 64 != 0) {
+				walls[walls.length - 1] = (1L << numCells) - 1;
+			}
+			int source = -1, target = -1;
+			for (int y = 0; y < height; ++y) {
+				line = reader.readLine();
+				if (line == null || line.length() < width) {
+					throw new IOException(String.format("Map row %d is missing or shorter than %d", y, width));
+				}
+				for (int x = 0; x < width; ++x) {
+					if (isPassable(line.charAt(x))) {
+						int cell = y * size + x;
+						walls[cell >>> 6] &= ~(1L << cell);
+						if (source == -1) {
+							source = cell;
+						}
+						target = cell;
+					}
+				}
+			}
+			return new MapFile.Content(size, size, Grid8Topology.get(), Math.max(source, 0),
+					target != -1 ? target : numCells - 1, 0, walls);
+		}
+	}
+
+	private static int parseSize(String token) throws IOException {
+		try {
+			int size = Integer.parseInt(token);
+			if (size <= 0 || size > PathFinderModel.MAX_MAP_SIZE) {
+				throw new IOException("Illegal map size: " + size);
+			}
+			return size;
+		} catch (NumberFormatException e) {
+			throw new IOException("Illegal map size: " + token);
+		}
+	}
+}
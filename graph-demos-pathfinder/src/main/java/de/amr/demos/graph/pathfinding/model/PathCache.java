@@ -0,0 +1,159 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Bounded cache of path finder answers with least-recently-used eviction.
+ * <p>
+ * Entries that may have become wrong by a map change are removed by {@link #invalidate(BiPredicate)},
+ * the decision is made by the owner who knows the change. A capacity of zero disables the cache.
+ *
+ * @author Armin Reichert
+ */
+public class PathCache {
+
+	public record Key(PathFinderAlgorithm algorithm, Heuristic heuristic, int source, int target) {
+	}
+
+	public record Entry(Path path, double cost) {
+	}
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			if (size() > capacity) {
+				++evictions;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private int capacity;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	public PathCache(int capacity) {
+		setCapacity(capacity);
+	}
+
+	public synchronized boolean isEnabled() {
+		return capacity > 0;
+	}
+
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Sets the maximum number of entries. Least recently used entries exceeding the new capacity are
+	 * evicted.
+	 *
+	 * @param capacity maximum number of entries, 0 disables the cache
+	 */
+	public synchronized void setCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Illegal cache capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		var it = entries.entrySet().iterator();
+		while (entries.size() > capacity && it.hasNext()) {
+			it.next();
+			it.remove();
+			++evictions;
+		}
+	}
+
+	/**
+	 * @param key query key
+	 * @return cached entry or {@code null}
+	 */
+	public synchronized Entry get(Key key) {
+		if (capacity == 0) {
+			return null;
+		}
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			++hits;
+		} else {
+			++misses;
+		}
+		return entry;
+	}
+
+	public synchronized void put(Key key, Entry entry) {
+		if (capacity > 0) {
+			entries.put(key, entry);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Removes the entries that have become invalid.
+	 * 
+	 * @param invalid tells if an entry is invalid
+	 * @return number of removed entries
+	 */
+	public synchronized int invalidate(BiPredicate<Key, Entry> invalid) {
+		int count = 0;
+		var it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			var entry = it.next();
+			if (invalid.test(entry.getKey(), entry.getValue())) {
+				it.remove();
+				++count;
+			}
+		}
+		invalidations += count;
+		return count;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		invalidations = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(Locale.ROOT, "size=%d/%d hits=%d misses=%d evictions=%d invalidations=%d hit rate=%.1f%%",
+				entries.size(), capacity, hits, misses, evictions, invalidations, 100 * getHitRate());
+	}
+}
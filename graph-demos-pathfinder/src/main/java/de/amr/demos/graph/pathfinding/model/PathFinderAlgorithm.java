@@ -1,5 +1,8 @@
 package de.amr.demos.graph.pathfinding.model;
 
+import de.amr.demos.graph.pathfinding.search.HierarchicalSearch;
+import de.amr.demos.graph.pathfinding.search.JumpPointSearch;
+import de.amr.demos.graph.pathfinding.search.LifelongPlanningAStar;
 import de.amr.graph.pathfinder.impl.AStarSearch;
 import de.amr.graph.pathfinder.impl.BestFirstSearch;
 import de.amr.graph.pathfinder.impl.BidiAStarSearch;
@@ -18,6 +21,10 @@ public enum PathFinderAlgorithm {
 	Dijkstra("Dijkstra Search", DijkstraSearch.class),
 	GreedyBestFirst("Best-First Search", BestFirstSearch.class),
 	AStar("A* Search", AStarSearch.class),
+	JPS("Jump Point Search", JumpPointSearch.class),
+	JPSPlus("Jump Point Search+", JumpPointSearch.class),
+	HPA("Hierarchical A* Search", HierarchicalSearch.class),
+	LPAStar("Lifelong Planning A* Search", LifelongPlanningAStar.class),
 	BidiBFS("Bidirectional Breadth-First Search", BidiBreadthFirstSearch.class),
 	BidiDijkstra("Bidirectional Dijkstra Search", BidiDijkstraSearch.class),
 	BidiAStar("Bidirectional A* Search", BidiAStarSearch.class);
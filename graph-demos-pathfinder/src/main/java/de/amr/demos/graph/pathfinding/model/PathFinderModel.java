@@ -1,14 +1,42 @@
 package de.amr.demos.graph.pathfinding.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
 import java.util.function.ToDoubleBiFunction;
+import java.util.stream.IntStream;
 
-import de.amr.graph.core.api.TraversalState;
+import org.tinylog.Logger;
+
+import de.amr.demos.graph.pathfinding.model.MapChangeJournal.DirtyRegion;
+import de.amr.demos.graph.pathfinding.metrics.PathFinderMetrics;
+import de.amr.demos.graph.pathfinding.search.AbstractGridSearch;
+import de.amr.demos.graph.pathfinding.search.CellEstimate;
+import de.amr.demos.graph.pathfinding.search.ClusterAbstraction;
+import de.amr.demos.graph.pathfinding.search.FlowField;
+import de.amr.demos.graph.pathfinding.search.GridBestFirstSearch;
+import de.amr.demos.graph.pathfinding.search.GridBestFirstSearch.Priority;
+import de.amr.demos.graph.pathfinding.search.GridBidiSearch;
+import de.amr.demos.graph.pathfinding.search.HierarchicalSearch;
+import de.amr.demos.graph.pathfinding.search.JumpPointSearch;
+import de.amr.demos.graph.pathfinding.search.JumpTable;
+import de.amr.demos.graph.pathfinding.search.Landmarks;
+import de.amr.demos.graph.pathfinding.search.LifelongPlanningAStar;
+import de.amr.demos.graph.pathfinding.search.OneToManySearch;
 import de.amr.graph.core.api.UndirectedEdge;
+import de.amr.graph.grid.api.GridGraph2D;
 import de.amr.graph.grid.api.GridMetrics;
 import de.amr.graph.grid.api.GridPosition;
 import de.amr.graph.grid.api.GridTopology;
@@ -33,15 +61,52 @@ import de.amr.util.StopWatch;
 public class PathFinderModel {
 
 	public static final int MIN_MAP_SIZE = 2;
-	public static final int MAX_MAP_SIZE = (int) Math.sqrt(100000);
+	public static final int MAX_MAP_SIZE = 10_000;
+
+	/**
+	 * Larger maps are always stored in compact representation ("large-map mode"), whatever
+	 * representation is selected.
+	 */
+	public static final int MAX_GRID_GRAPH_MAP_SIZE = (int) Math.sqrt(100000);
+
+	/*
+	 * Rough per-cell size of the state of the library searches: parent, traversal state and cost are
+	 * kept in hash maps with boxed keys and values (entry, key and value object).
+	 */
+	private static final long LIBRARY_SEARCH_BYTES_PER_TOUCHED_CELL = 3 * (32 + 16 + 16);
 
-	private GridGraph<Tile, Double> map;
+	private MapRepresentation mapRepresentation;
+	private GridGraph2D<Tile, Double> map;
 	private int source;
 	private int target;
-	private List<PathFinderResult> results;
+	private volatile List<PathFinderResult> results;
+	private Executor executor = ForkJoinPool.commonPool();
+	private JumpTable jumpTable;
+	private ClusterAbstraction clusterAbstraction;
+	private LifelongPlanningAStar lifelongPlanner;
+	private volatile Landmarks landmarks;
+	private FlowField flowField;
+	private Heuristic heuristic = Heuristic.EUCLIDEAN;
+	private Landmarks.Selection landmarkSelection = Landmarks.Selection.PERIMETER;
+	private int landmarkCount = Landmarks.DEFAULT_COUNT;
+	private int warmupRuns = 0;
+	private int timedRuns = 1;
+	private volatile SearchBudget searchBudget = SearchBudget.UNLIMITED;
+	private final Set<SearchHandle> runningSearches = ConcurrentHashMap.newKeySet();
+	private final MapChangeJournal journal = new MapChangeJournal();
+	private final PathCache pathCache = new PathCache(0);
+	private final PathFinderMetrics metrics = new PathFinderMetrics();
 
 	public PathFinderModel(int mapSize, GridTopology topology) {
+		this(mapSize, topology, MapRepresentation.GRID_GRAPH);
+	}
+
+	public PathFinderModel(int mapSize, GridTopology topology, MapRepresentation mapRepresentation) {
+		checkMapSize(mapSize);
+		this.mapRepresentation = Objects.requireNonNull(mapRepresentation);
+		journal.addListener(new MapChangeHandler());
 		newMap(mapSize, topology);
+		journal.addListener(metrics);
 		source = map.cell(mapSize / 3, mapSize / 2);
 		target = map.cell(mapSize * 2 / 3, mapSize / 2);
 		results = new ArrayList<>();
@@ -51,25 +116,55 @@ public class PathFinderModel {
 	}
 
 	private PathFinderResult newResult(PathFinderAlgorithm algorithm) {
-		return new PathFinderResult(newPathFinder(algorithm), algorithm.getDisplayName());
+		// the heuristic is only probed while run events are recorded
+		HeuristicProbe probe = new SearchRunEvent().isEnabled() ? new HeuristicProbe() : null;
+		PathFinderResult result = new PathFinderResult(newPathFinder(algorithm, this::getTarget, probe),
+				algorithm.getDisplayName());
+		result.setHeuristicProbe(probe);
+		if (algorithm == PathFinderAlgorithm.JPSPlus) {
+			result.setFallback(getJumpTableFallback());
+		} else if (heuristic == Heuristic.ALT && (algorithm == PathFinderAlgorithm.AStar
+				|| algorithm == PathFinderAlgorithm.BidiAStar || algorithm == PathFinderAlgorithm.GreedyBestFirst)) {
+			result.setFallback(getLandmarksFallback());
+		}
+		return result;
 	}
 
-	private ObservableGraphSearch newPathFinder(PathFinderAlgorithm algorithm) {
-		ToDoubleBiFunction<Integer, Integer> edgeLabel = (u, v) -> map.getEdgeLabel(u, v);
+	/*
+	 * The target supplier is needed by the best-first search whose estimate depends on the target. The
+	 * probe, if not null, wraps the heuristic.
+	 */
+	private ObservableGraphSearch newPathFinder(PathFinderAlgorithm algorithm, IntSupplier fnTarget,
+			HeuristicProbe probe) {
+		if (map instanceof CompactGridMap && isLibrarySearch(algorithm)) {
+			return newGridSearch(algorithm, probe);
+		}
+		ToDoubleBiFunction<Integer, Integer> edgeLabel = map instanceof CompactGridMap compactMap ? compactMap::edgeCost
+				: (u, v) -> map.getEdgeLabel(u, v);
 		ToDoubleBiFunction<Integer, Integer> euclidean = (u, v) -> GridMetrics.euclidean(map, u, v);
+		ToDoubleBiFunction<Integer, Integer> heuristicFn = isUsingLandmarks() ? this::landmarkEstimate : euclidean;
+		ToDoubleBiFunction<Integer, Integer> fnEstimate = probe != null ? probe.wrap(heuristicFn) : heuristicFn;
 		switch (algorithm) {
 		case AStar:
-			return new AStarSearch(map, edgeLabel, euclidean);
+			return new AStarSearch(map, edgeLabel, fnEstimate);
+		case JPS:
+			return new JumpPointSearch(map);
+		case JPSPlus:
+			return new JumpPointSearch(map, getJumpTableFallback() == null ? getJumpTable() : null);
+		case HPA:
+			return new HierarchicalSearch(map, getClusterAbstraction());
+		case LPAStar:
+			return getLifelongPlanner();
 		case BFS:
 			return new BreadthFirstSearch(map, euclidean);
 		case Dijkstra:
 			return new DijkstraSearch(map, edgeLabel);
 		case GreedyBestFirst:
-			return new BestFirstSearch(map, v -> euclidean.applyAsDouble(v, getTarget()), euclidean);
+			return new BestFirstSearch(map, v -> fnEstimate.applyAsDouble(v, fnTarget.getAsInt()), euclidean);
 		case BidiBFS:
 			return new BidiBreadthFirstSearch(map, euclidean);
 		case BidiAStar:
-			return new BidiAStarSearch(map, edgeLabel, euclidean, euclidean);
+			return new BidiAStarSearch(map, edgeLabel, fnEstimate, fnEstimate);
 		case BidiDijkstra:
 			return new BidiDijkstraSearch(map, euclidean);
 		default:
@@ -77,26 +172,442 @@ public class PathFinderModel {
 		}
 	}
 
+	/**
+	 * @param algorithm path finder algorithm
+	 * @return if the path finder follows the corner rule of a compact map (see
+	 *         {@link CompactGridMap#setCornerCutting(boolean)}). JPS, JPS+ and HPA* always cut corners.
+	 */
+	public static boolean followsCornerRule(PathFinderAlgorithm algorithm) {
+		return isLibrarySearch(algorithm) || algorithm == PathFinderAlgorithm.LPAStar;
+	}
+
+	private static boolean isLibrarySearch(PathFinderAlgorithm algorithm) {
+		switch (algorithm) {
+		case AStar:
+		case BFS:
+		case Dijkstra:
+		case GreedyBestFirst:
+		case BidiBFS:
+		case BidiAStar:
+		case BidiDijkstra:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/*
+	 * Replaces the library searches on compact maps. The library searches keep their state in hash maps
+	 * with boxed keys and values (about 200 bytes per touched cell), these searches in primitive arrays
+	 * of 13 bytes per cell and direction.
+	 */
+	private AbstractGridSearch newGridSearch(PathFinderAlgorithm algorithm, HeuristicProbe probe) {
+		CellEstimate euclidean = (u, v) -> GridMetrics.euclidean(map, u, v);
+		CellEstimate heuristicFn = isUsingLandmarks() ? this::landmarkEstimate : euclidean;
+		CellEstimate fnEstimate = probe != null ? probe.wrapCellEstimate(heuristicFn) : heuristicFn;
+		switch (algorithm) {
+		case AStar:
+			return new GridBestFirstSearch(map, Priority.COST_AND_ESTIMATE, fnEstimate);
+		case BFS:
+			return new GridBestFirstSearch(map, Priority.DISCOVERY, null);
+		case Dijkstra:
+			return new GridBestFirstSearch(map, Priority.COST, null);
+		case GreedyBestFirst:
+			return new GridBestFirstSearch(map, Priority.ESTIMATE, fnEstimate);
+		case BidiBFS:
+			return new GridBidiSearch(map, Priority.DISCOVERY, null);
+		case BidiAStar:
+			return new GridBidiSearch(map, Priority.COST_AND_ESTIMATE, fnEstimate);
+		case BidiDijkstra:
+			return new GridBidiSearch(map, Priority.COST, null);
+		default:
+			throw new IllegalArgumentException("No grid search for algorithm: " + algorithm);
+		}
+	}
+
+	/**
+	 * @return why "JPS+" runs as plain JPS on the current map or {@code null} if it uses a jump table.
+	 *         The table needs 8 bytes per cell (800 MB for the largest maps) and is not built if that
+	 *         exceeds a quarter of the maximum heap size.
+	 */
+	public String getJumpTableFallback() {
+		if (map.getTopology().dirCount() != 8) {
+			return "plain JPS on 4-neighbor map";
+		}
+		if (JumpTable.sizeBytes(map.numVertices()) > Runtime.getRuntime().maxMemory() / 4) {
+			return "plain JPS: jump table too large";
+		}
+		return null;
+	}
+
+	/**
+	 * @return jump table for "JPS+", created on first use and kept up-to-date on map changes
+	 */
+	private synchronized JumpTable getJumpTable() {
+		if (jumpTable == null) {
+			jumpTable = new JumpTable(map);
+			journal.addListener(jumpTable);
+			Logger.info("Jump table built in %.1f ms, size %d KB", jumpTable.getBuildTimeMillis(),
+					jumpTable.sizeBytes() / 1024);
+		}
+		return jumpTable;
+	}
+
+	/**
+	 * @return cluster abstraction for HPA*, created on first use and kept up-to-date on map changes
+	 */
+	private synchronized ClusterAbstraction getClusterAbstraction() {
+		if (clusterAbstraction == null) {
+			clusterAbstraction = new ClusterAbstraction(map);
+			journal.addListener(clusterAbstraction);
+		}
+		return clusterAbstraction;
+	}
+
+	/**
+	 * @return the LPA* search, kept over all runs such that map changes only need a repair of the
+	 *         previous search
+	 */
+	private synchronized LifelongPlanningAStar getLifelongPlanner() {
+		if (lifelongPlanner == null) {
+			lifelongPlanner = new LifelongPlanningAStar(map);
+			journal.addListener(lifelongPlanner);
+		}
+		return lifelongPlanner;
+	}
+
+	/**
+	 * @return why the ALT heuristic is replaced by the Euclidean distance on the current map or
+	 *         {@code null} if landmarks are used. The landmarks need 4 bytes per cell and landmark (3.2 GB
+	 *         for 8 landmarks on the largest maps) and are not built if that exceeds a quarter of the
+	 *         maximum heap size.
+	 */
+	public String getLandmarksFallback() {
+		if (Landmarks.sizeBytes(landmarkCount, map.numVertices()) > Runtime.getRuntime().maxMemory() / 4) {
+			return "Euclidean: landmarks too large";
+		}
+		return null;
+	}
+
+	/**
+	 * @return landmark distances for the ALT heuristic, created on first use and discarded when a wall
+	 *         is removed
+	 * @throws IllegalStateException if the landmarks are too large, see {@link #getLandmarksFallback()}
+	 */
+	public synchronized Landmarks getLandmarks() {
+		if (landmarks == null) {
+			String fallback = getLandmarksFallback();
+			if (fallback != null) {
+				throw new IllegalStateException(fallback);
+			}
+			landmarks = new Landmarks(map, landmarkSelection, landmarkCount);
+		}
+		return landmarks;
+	}
+
+	private boolean isUsingLandmarks() {
+		return heuristic == Heuristic.ALT && getLandmarksFallback() == null;
+	}
+
+	/*
+	 * ALT estimate that gets the landmarks when the search first needs them. Path finders are also
+	 * created on the event dispatch thread, which must not build the landmarks or wait for them.
+	 */
+	private double landmarkEstimate(int u, int v) {
+		Landmarks alt = landmarks;
+		return (alt != null ? alt : getLandmarks()).estimate(u, v);
+	}
+
+	/**
+	 * @return landmark distances if they have been created, else {@code null}. Does not wait while the
+	 *         landmarks are being created.
+	 */
+	public Landmarks getLandmarksIfCreated() {
+		return landmarks;
+	}
+
+	/**
+	 * @return flow field towards the current target, created on first use or after the target has
+	 *         changed and kept up-to-date on map changes
+	 */
+	public synchronized FlowField getFlowField() {
+		if (flowField == null || flowField.getTarget() != target) {
+			if (flowField != null) {
+				journal.removeListener(flowField);
+			}
+			flowField = new FlowField(map, target);
+			journal.addListener(flowField);
+		}
+		return flowField;
+	}
+
+	private synchronized void discardLandmarks() {
+		landmarks = null;
+	}
+
+	/**
+	 * Discards the data derived from the map content, it is recreated on demand.
+	 */
+	private synchronized void discardDerivedData() {
+		for (MapChangeListener listener : new MapChangeListener[] { jumpTable, clusterAbstraction, lifelongPlanner,
+				flowField }) {
+			if (listener != null) {
+				journal.removeListener(listener);
+			}
+		}
+		jumpTable = null;
+		clusterAbstraction = null;
+		lifelongPlanner = null;
+		landmarks = null;
+		flowField = null;
+	}
+
+	/*
+	 * Invalidates the derived data that is not updated by itself. Adding a wall only increases
+	 * distances, so landmark distances stay lower bounds and cached optimal paths stay optimal unless
+	 * they pass the new wall. Removing a wall makes the landmarks stale and invalidates the cached
+	 * answers that could be improved by a path over the removed wall.
+	 */
+	private class MapChangeHandler implements MapChangeListener {
+
+		@Override
+		public void cellChanged(int cell) {
+			cellsChanged(new int[] { cell });
+		}
+
+		@Override
+		public void cellsChanged(int[] cells) {
+			BitSet newWalls = new BitSet();
+			int[] freedCells = new int[cells.length];
+			int numFreed = 0;
+			int minCol = Integer.MAX_VALUE, minRow = Integer.MAX_VALUE, maxCol = -1, maxRow = -1;
+			for (int cell : cells) {
+				if (map.get(cell) == Tile.WALL) {
+					newWalls.set(cell);
+				} else {
+					freedCells[numFreed++] = cell;
+					minCol = Math.min(minCol, map.col(cell));
+					minRow = Math.min(minRow, map.row(cell));
+					maxCol = Math.max(maxCol, map.col(cell));
+					maxRow = Math.max(maxRow, map.row(cell));
+				}
+			}
+			if (numFreed > 0) {
+				discardLandmarks();
+			}
+			DirtyRegion freedRegion = new DirtyRegion(Arrays.copyOf(freedCells, numFreed), minCol, minRow, maxCol,
+					maxRow);
+			pathCache.invalidate((key, entry) -> !isOptimal(key.algorithm())
+					|| !newWalls.isEmpty() && pathContainsAny(entry.path(), newWalls)
+					|| !freedRegion.isEmpty() && (entry.cost() == Path.INFINITE_COST
+							|| canShortcut(key.source(), key.target(), entry.cost(), freedRegion)));
+		}
+
+		/*
+		 * A path over a freed cell is at least as long as the straight lines from the source to the cell
+		 * and from the cell to the target. The cells are only tested if the bounding box of the freed
+		 * cells is close enough.
+		 */
+		private boolean canShortcut(int source, int target, double cost, DirtyRegion freed) {
+			if (distanceToRegion(source, freed) + distanceToRegion(target, freed) >= cost) {
+				return false;
+			}
+			for (int cell : freed.cells()) {
+				if (GridMetrics.euclidean(map, source, cell) + GridMetrics.euclidean(map, cell, target) < cost) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private double distanceToRegion(int cell, DirtyRegion region) {
+			int col = map.col(cell), row = map.row(cell);
+			int dx = Math.max(0, Math.max(region.minCol() - col, col - region.maxCol()));
+			int dy = Math.max(0, Math.max(region.minRow() - row, row - region.maxRow()));
+			return Math.sqrt(dx * dx + dy * dy);
+		}
+
+		private boolean pathContainsAny(Path path, BitSet cells) {
+			for (int v : path) {
+				if (cells.get(v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void mapReplaced() {
+			pathCache.clear();
+		}
+
+		private boolean isOptimal(PathFinderAlgorithm algorithm) {
+			switch (algorithm) {
+			case Dijkstra:
+			case AStar:
+			case JPS:
+			case JPSPlus:
+			case LPAStar:
+			case BidiDijkstra:
+				return true;
+			default:
+				return false;
+			}
+		}
+	}
+
+	public Heuristic getHeuristic() {
+		return heuristic;
+	}
+
+	/**
+	 * @param heuristic heuristic used by A*, bidirectional A* and best-first search
+	 */
+	public void setHeuristic(Heuristic heuristic) {
+		this.heuristic = Objects.requireNonNull(heuristic);
+	}
+
+	public Landmarks.Selection getLandmarkSelection() {
+		return landmarkSelection;
+	}
+
+	public void setLandmarkSelection(Landmarks.Selection landmarkSelection) {
+		if (landmarkSelection != this.landmarkSelection) {
+			this.landmarkSelection = Objects.requireNonNull(landmarkSelection);
+			discardLandmarks();
+		}
+	}
+
+	public int getLandmarkCount() {
+		return landmarkCount;
+	}
+
+	public void setLandmarkCount(int landmarkCount) {
+		if (landmarkCount < 1) {
+			throw new IllegalArgumentException("Illegal landmark count: " + landmarkCount);
+		}
+		if (landmarkCount != this.landmarkCount) {
+			this.landmarkCount = landmarkCount;
+			discardLandmarks();
+		}
+	}
+
+	public int getWarmupRuns() {
+		return warmupRuns;
+	}
+
+	public int getTimedRuns() {
+		return timedRuns;
+	}
+
+	/**
+	 * Sets the measurement mode of path finder runs without observer. The warm-up runs give the JIT
+	 * compiler a chance to compile the search code, their time is not recorded. The running time of a
+	 * result is the median of the timed runs. Note that repeated LPA* runs on an unchanged map only
+	 * measure the (empty) repair of the first run.
+	 * 
+	 * @param warmupRuns number of runs before the timed runs
+	 * @param timedRuns  number of timed runs, at least 1
+	 */
+	public void setMeasurement(int warmupRuns, int timedRuns) {
+		if (warmupRuns < 0 || timedRuns < 1) {
+			throw new IllegalArgumentException(
+					String.format("Illegal measurement: %d warm-up runs, %d timed runs", warmupRuns, timedRuns));
+		}
+		this.warmupRuns = warmupRuns;
+		this.timedRuns = timedRuns;
+	}
+
+	/**
+	 * @return if path finder runs are repeated for measurement, in that case the path cache is not
+	 *         used
+	 */
+	public boolean isMeasuring() {
+		return warmupRuns > 0 || timedRuns > 1;
+	}
+
+	public SearchBudget getSearchBudget() {
+		return searchBudget;
+	}
+
+	/**
+	 * @param searchBudget limits of the path finder runs started from now on
+	 */
+	public void setSearchBudget(SearchBudget searchBudget) {
+		this.searchBudget = Objects.requireNonNull(searchBudget);
+	}
+
+	/**
+	 * Cancels the path finder runs in progress. They stop before their next expansion and leave a
+	 * partial result which is neither cached nor recorded in the metrics.
+	 */
+	public void cancelSearches() {
+		runningSearches.forEach(SearchHandle::cancel);
+	}
+
+	/*
+	 * Runs the path finder of the result under the search budget, cancellable by cancelSearches().
+	 */
+	private Path runSearch(PathFinderResult result) {
+		int target = this.target;
+		SearchHandle handle = new SearchHandle(result.getPathFinder(), searchBudget,
+				cell -> GridMetrics.euclidean(map, cell, target));
+		runningSearches.add(handle);
+		try {
+			Path path = handle.run(source, target);
+			result.setTermination(handle.getTermination());
+			result.setBestCell(handle.getBestCell());
+			return path;
+		} finally {
+			runningSearches.remove(handle);
+		}
+	}
+
+	private static void checkMapSize(int mapSize) {
+		if (mapSize < MIN_MAP_SIZE || mapSize > MAX_MAP_SIZE) {
+			throw new IllegalArgumentException(
+					String.format("Map size %d not in range [%d, %d]", mapSize, MIN_MAP_SIZE, MAX_MAP_SIZE));
+		}
+	}
+
+	/*
+	 * The selected representation is kept when a map is too large for it, a smaller map gets it again.
+	 */
+	private MapRepresentation representationFor(int mapSize) {
+		return mapSize > MAX_GRID_GRAPH_MAP_SIZE ? MapRepresentation.COMPACT : mapRepresentation;
+	}
+
+	private GridGraph2D<Tile, Double> createMap(int mapSize, GridTopology topology) {
+		MapRepresentation representation = representationFor(mapSize);
+		switch (representation) {
+		case GRID_GRAPH:
+			BiFunction<Integer, Integer, Double> euclidean = (u, v) -> GridMetrics.euclidean(map, u, v);
+			GridGraph<Tile, Double> gridGraph = new GridGraph<>(mapSize, mapSize, topology, v -> null, (u, v) -> 0.0,
+					UndirectedEdge::new);
+			gridGraph.setDefaultVertexLabel(cell -> Tile.BLANK);
+			gridGraph.setDefaultEdgeLabel(euclidean);
+			// edges are added by setWalls()
+			return gridGraph;
+		case COMPACT:
+			return new CompactGridMap(mapSize, mapSize, topology);
+		default:
+			throw new IllegalArgumentException("Unknown map representation: " + representation);
+		}
+	}
+
 	private void newMap(int mapSize, GridTopology topology) {
-		BiFunction<Integer, Integer, Double> euclidean = (u, v) -> GridMetrics.euclidean(map, u, v);
-		GridGraph<Tile, Double> oldMap = map;
-		map = new GridGraph<>(mapSize, mapSize, topology, v -> null, (u, v) -> 0.0, UndirectedEdge::new);
-		map.setDefaultVertexLabel(cell -> Tile.BLANK);
-		map.setDefaultEdgeLabel(euclidean);
-		map.fill();
+		GridGraph2D<Tile, Double> oldMap = map;
+		map = createMap(mapSize, topology);
+		discardDerivedData();
 		if (oldMap == null) {
+			setWalls(new long[wordCount(map.numVertices())]);
+			journal.mapReplaced(map.numCols());
 			return;
 		}
 
 		float scalingFactor = (float) map.numCols() / oldMap.numCols();
 		// copy walls into map, keep aspect ratio
-		for (int oldCell = 0; oldCell < oldMap.numVertices(); ++oldCell) {
-			int oldRow = oldMap.row(oldCell), oldCol = oldMap.col(oldCell);
-			int row = scaledCoord(oldRow, scalingFactor), col = scaledCoord(oldCol, scalingFactor);
-			if (map.isValidRow(row) && map.isValidCol(col)) {
-				setMapContent(map.cell(col, row), oldMap.get(oldCell));
-			}
-		}
+		long[] walls = scaledWalls(oldMap, scalingFactor);
 
 		boolean mapped = false;
 		for (GridPosition pos : GridPosition.values()) {
@@ -144,18 +655,207 @@ public class PathFinderModel {
 			target = map.numVertices() - 1;
 		}
 
-		setMapContent(source, Tile.BLANK);
-		setMapContent(target, Tile.BLANK);
+		walls[source >>> 6] &= ~(1L << source);
+		walls[target >>> 6] &= ~(1L << target);
+		setWalls(walls);
+		journal.mapReplaced(map.numCols());
+	}
+
+	/**
+	 * Replaces the map by the content of a map file. Maps larger than
+	 * {@value #MAX_GRID_GRAPH_MAP_SIZE} cells per side are stored in compact representation. The source
+	 * and target cell are cleared in the wall bitmap of the content.
+	 * 
+	 * @param content map file content, the map must be square
+	 */
+	public void setMap(MapFile.Content content) {
+		if (content.numCols() != content.numRows()) {
+			throw new IllegalArgumentException(
+					String.format("Map must be square but is %d x %d", content.numCols(), content.numRows()));
+		}
+		int mapSize = content.numCols();
+		checkMapSize(mapSize);
+		map = createMap(mapSize, content.topology());
+		discardDerivedData();
+		source = content.source();
+		target = content.target();
+		long[] walls = content.walls();
+		walls[source >>> 6] &= ~(1L << source);
+		walls[target >>> 6] &= ~(1L << target);
+		setWalls(walls);
+		journal.mapReplaced(map.numCols());
+	}
+
+	/**
+	 * @return wall bitmap, bit {@code i % 64} of word {@code i / 64} is set iff cell {@code i} is a
+	 *         wall. For compact maps this is the bitmap of the map itself, not a copy.
+	 */
+	public long[] getWallBits() {
+		if (map instanceof CompactGridMap compactMap) {
+			return compactMap.wallBits();
+		}
+		long[] walls = new long[wordCount(map.numVertices())];
+		for (int cell = 0; cell < map.numVertices(); ++cell) {
+			if (map.get(cell) == Tile.WALL) {
+				walls[cell >>> 6] |= 1L << cell;
+			}
+		}
+		return walls;
 	}
 
 	private static int scaledCoord(int coord, float scaling) {
 		return (int) (scaling * coord);
 	}
 
-	public GridGraph<Tile, Double> getMap() {
+	private static int wordCount(int numCells) {
+		return (int) (((long) numCells + 63) >>> 6);
+	}
+
+	/*
+	 * Rasterizes the walls of the old map onto the current map. Each cell gets the content of the last
+	 * old cell (in index order) that is scaled onto it, which is the result of copying the old cells
+	 * one by one. Cells no old cell is scaled onto stay blank. The words of the bitmap are computed in
+	 * parallel.
+	 */
+	private long[] scaledWalls(GridGraph2D<Tile, Double> oldMap, float scaling) {
+		int[] oldCol = inverseScaling(oldMap.numCols(), map.numCols(), scaling);
+		int[] oldRow = inverseScaling(oldMap.numRows(), map.numRows(), scaling);
+		CompactGridMap oldCompactMap = oldMap instanceof CompactGridMap compact ? compact : null;
+		int numCols = map.numCols(), numCells = map.numVertices();
+		long[] walls = new long[wordCount(numCells)];
+		IntStream.range(0, walls.length).parallel().forEach(word -> {
+			long bits = 0;
+			for (int cell = word << 6; cell < Math.min((word + 1) << 6, numCells); ++cell) {
+				int col = oldCol[cell % numCols], row = oldRow[cell / numCols];
+				if (col != -1 && row != -1) {
+					int oldCell = oldMap.cell(col, row);
+					boolean wall = oldCompactMap != null ? oldCompactMap.isWall(oldCell) : oldMap.get(oldCell) == Tile.WALL;
+					if (wall) {
+						bits |= 1L << cell;
+					}
+				}
+			}
+			walls[word] = bits;
+		});
+		return walls;
+	}
+
+	/*
+	 * For each new coordinate the last old coordinate scaled onto it or -1.
+	 */
+	private static int[] inverseScaling(int oldSize, int newSize, float scaling) {
+		int[] inverse = new int[newSize];
+		Arrays.fill(inverse, -1);
+		for (int coord = 0; coord < oldSize; ++coord) {
+			int scaled = scaledCoord(coord, scaling);
+			if (0 <= scaled && scaled < newSize) {
+				inverse[scaled] = coord;
+			}
+		}
+		return inverse;
+	}
+
+	/*
+	 * Replaces the content of the whole map by the wall bitmap. Compact maps copy the bitmap, grid
+	 * graphs get their labels and all edges between free cells in one pass over the cells.
+	 */
+	private void setWalls(long[] walls) {
+		if (map instanceof CompactGridMap compactMap) {
+			compactMap.setWallBits(walls);
+			return;
+		}
+		map.clearVertexLabels();
+		map.removeEdges();
+		GridTopology topology = map.getTopology();
+		int numCols = map.numCols(), numRows = map.numRows();
+		for (int cell = 0; cell < numCols * numRows; ++cell) {
+			if ((walls[cell >>> 6] & (1L << cell)) != 0) {
+				map.set(cell, Tile.WALL);
+			}
+		}
+		for (int row = 0; row < numRows; ++row) {
+			for (int col = 0; col < numCols; ++col) {
+				int cell = row * numCols + col;
+				if ((walls[cell >>> 6] & (1L << cell)) != 0) {
+					continue;
+				}
+				for (int dir = 0; dir < topology.dirCount(); ++dir) {
+					int neighborCol = col + topology.dx(dir), neighborRow = row + topology.dy(dir);
+					if (neighborCol < 0 || neighborCol >= numCols || neighborRow < 0 || neighborRow >= numRows) {
+						continue;
+					}
+					int neighbor = neighborRow * numCols + neighborCol;
+					// add each edge once, from the cell with the smaller index
+					if (neighbor > cell && (walls[neighbor >>> 6] & (1L << neighbor)) == 0) {
+						map.addEdge(cell, neighbor);
+					}
+				}
+			}
+		}
+	}
+
+	public GridGraph2D<Tile, Double> getMap() {
 		return map;
 	}
 
+	/**
+	 * @return version of the map content, increased by every change of the map
+	 */
+	public long getMapVersion() {
+		return journal.getVersion();
+	}
+
+	/**
+	 * @return journal of map changes, consumers can subscribe to it or query the changed region
+	 */
+	public MapChangeJournal getMapChangeJournal() {
+		return journal;
+	}
+
+	/**
+	 * @return cache of path finder answers, disabled (capacity 0) by default
+	 */
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+
+	/**
+	 * @return metrics accumulated over all timed runs, batch queries, cache lookups and map edits of
+	 *         this model
+	 */
+	public PathFinderMetrics getMetrics() {
+		return metrics;
+	}
+
+	public boolean isLargeMap() {
+		return map.numRows() > MAX_GRID_GRAPH_MAP_SIZE;
+	}
+
+	/**
+	 * @return the selected map representation, maps larger than {@value #MAX_GRID_GRAPH_MAP_SIZE} cells
+	 *         per side are compact anyway
+	 */
+	public MapRepresentation getMapRepresentation() {
+		return mapRepresentation;
+	}
+
+	/**
+	 * @return representation of the current map
+	 */
+	public MapRepresentation getEffectiveMapRepresentation() {
+		return representationFor(map.numRows());
+	}
+
+	public void setMapRepresentation(MapRepresentation mapRepresentation) {
+		if (mapRepresentation != this.mapRepresentation) {
+			MapRepresentation effective = getEffectiveMapRepresentation();
+			this.mapRepresentation = Objects.requireNonNull(mapRepresentation);
+			if (getEffectiveMapRepresentation() != effective) {
+				newMap(map.numRows(), map.getTopology());
+			}
+		}
+	}
+
 	public GridTopology getMapTopology() {
 		return map.getTopology();
 	}
@@ -171,30 +871,84 @@ public class PathFinderModel {
 	}
 
 	public void setMapSize(int mapSize) {
+		checkMapSize(mapSize);
 		if (mapSize != map.numRows()) {
 			newMap(mapSize, map.getTopology());
 		}
 	}
 
 	public void clearMap() {
-		map.clearVertexLabels();
-		map.fill();
+		discardDerivedData();
+		setWalls(new long[wordCount(map.numVertices())]);
+		journal.mapReplaced(map.numCols());
 	}
 
 	public void setMapContent(int cell, Tile tile) {
 		Objects.requireNonNull(tile);
+		if (map.get(cell) == tile) {
+			return;
+		}
 		map.set(cell, tile);
-		switch (tile) {
-		case BLANK:
-			map.neighbors(cell).filter(neighbor -> map.get(neighbor) != Tile.WALL)
-					.filter(neighbor -> !map.adjacent(cell, neighbor)).forEach(neighbor -> map.addEdge(cell, neighbor));
-			break;
-		case WALL:
-			map.neighbors(cell).filter(neighbor -> map.get(neighbor) != Tile.WALL)
-					.filter(neighbor -> map.adjacent(cell, neighbor)).forEach(neighbor -> map.removeEdge(cell, neighbor));
-			break;
-		default:
-			throw new IllegalArgumentException("Unknown tile " + tile);
+		// edges of compact maps are implied by the walls
+		if (!(map instanceof CompactGridMap)) {
+			reconcileEdges(cell);
+		}
+		journal.cellChanged(cell);
+	}
+
+	/**
+	 * Applies all changes of the edit in one pass. Only cells whose content differs are changed, the
+	 * edges are reconciled after all cells are set and the journal and its listeners are notified once.
+	 * 
+	 * @param edit map edit for a map of the current size
+	 * @return number of changed cells
+	 */
+	public int applyEdit(MapEdit edit) {
+		if (edit.numCols() != map.numCols() || edit.numRows() != map.numRows()) {
+			throw new IllegalArgumentException(String.format("Edit size %dx%d does not match map size %dx%d",
+					edit.numCols(), edit.numRows(), map.numCols(), map.numRows()));
+		}
+		int[] changed = new int[edit.size()];
+		int n = 0;
+		for (int cell = edit.nextCell(0); cell != -1; cell = edit.nextCell(cell + 1)) {
+			Tile tile = edit.get(cell);
+			if (map.get(cell) != tile) {
+				map.set(cell, tile);
+				changed[n++] = cell;
+			}
+		}
+		changed = Arrays.copyOf(changed, n);
+		// edges of compact maps are implied by the walls
+		if (!(map instanceof CompactGridMap)) {
+			for (int cell : changed) {
+				reconcileEdges(cell);
+			}
+		}
+		journal.cellsChanged(changed);
+		return n;
+	}
+
+	/*
+	 * Connects the cell with its free neighbors if it is free itself, else disconnects it.
+	 */
+	private void reconcileEdges(int cell) {
+		GridTopology topology = map.getTopology();
+		int col = map.col(cell), row = map.row(cell);
+		boolean free = map.get(cell) != Tile.WALL;
+		for (int dir = 0; dir < topology.dirCount(); ++dir) {
+			int neighborCol = col + topology.dx(dir), neighborRow = row + topology.dy(dir);
+			if (!map.isValidCol(neighborCol) || !map.isValidRow(neighborRow)) {
+				continue;
+			}
+			int neighbor = map.cell(neighborCol, neighborRow);
+			boolean connected = free && map.get(neighbor) != Tile.WALL;
+			if (connected != map.adjacent(cell, neighbor)) {
+				if (connected) {
+					map.addEdge(cell, neighbor);
+				} else {
+					map.removeEdge(cell, neighbor);
+				}
+			}
 		}
 	}
 
@@ -211,15 +965,33 @@ public class PathFinderModel {
 	}
 
 	public void setResult(ObservableGraphSearch pathFinder, Path path, float timeMillis) {
-		long touched = map.vertices().filter(v -> pathFinder.getState(v) != TraversalState.UNVISITED).count();
-		long closed = map.vertices().filter(v -> pathFinder.getState(v) == TraversalState.COMPLETED).count();
-		getResult(pathFinder).ifPresent(result -> {
-			result.setPath(path);
-			result.setRunningTimeMillis(timeMillis);
-			result.setCost(pathFinder.getCost(target));
-			result.setNumTouchedVertices(touched);
-			result.setNumClosedVertices(closed);
-		});
+		getResult(pathFinder).ifPresent(result -> fillResult(result, path, timeMillis));
+	}
+
+	private void fillResult(PathFinderResult result, Path path, float timeMillis) {
+		// counters are maintained by the search observer, no scan over the map needed
+		SearchStatistics statistics = result.getStatistics();
+		result.setPath(path);
+		result.setRunningTimeMillis(timeMillis);
+		result.setPreprocessingTimeMillis(getPreprocessingTimeMillis(result.getPathFinder()));
+		result.setCost(result.getPathFinder().getCost(target));
+		result.setNumTouchedVertices(statistics.getNumTouched());
+		result.setNumClosedVertices(statistics.getNumClosed());
+		result.setPeakOpenListSize(statistics.getPeakOpenListSize());
+		result.setExpansionsPerSecond(timeMillis > 0 ? 1000.0 * statistics.getNumExpansions() / timeMillis : 0);
+		result.setStateSizeBytes(result.getPathFinder() instanceof AbstractGridSearch gridSearch
+				? gridSearch.getStateSizeBytes()
+				: LIBRARY_SEARCH_BYTES_PER_TOUCHED_CELL * statistics.getNumTouched());
+	}
+
+	private float getPreprocessingTimeMillis(ObservableGraphSearch pathFinder) {
+		float millis = pathFinder instanceof AbstractGridSearch gridSearch ? gridSearch.getPreprocessingTimeMillis() : 0;
+		boolean usesHeuristic = pathFinder instanceof AStarSearch || pathFinder instanceof BidiAStarSearch
+				|| pathFinder instanceof BestFirstSearch
+				|| pathFinder instanceof GridBestFirstSearch gridSearch && gridSearch.isInformed()
+				|| pathFinder instanceof GridBidiSearch bidiSearch && bidiSearch.isInformed();
+		Landmarks alt = landmarks;
+		return usesHeuristic && heuristic == Heuristic.ALT && alt != null ? millis + alt.getBuildTimeMillis() : millis;
 	}
 
 	public void clearResults() {
@@ -229,6 +1001,7 @@ public class PathFinderModel {
 	}
 
 	public void clearResult(int pathFinderIndex) {
+		results.get(pathFinderIndex).dispose();
 		results.set(pathFinderIndex, newResult(getAlgorithm(pathFinderIndex)));
 	}
 
@@ -271,23 +1044,297 @@ public class PathFinderModel {
 		}
 	}
 
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor executor used by {@link #runAllPathFindersParallel()}
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Runs each path finder on its own worker of the configured executor and replaces all results at
+	 * once when every search has finished. The calling thread waits for the workers, so the map cannot
+	 * be modified during the run and is shared read-only by all searches.
+	 */
+	public void runAllPathFindersParallel() {
+		List<CompletableFuture<PathFinderResult>> runs = new ArrayList<>();
+		for (PathFinderAlgorithm algorithm : PathFinderAlgorithm.values()) {
+			runs.add(CompletableFuture.supplyAsync(() -> computeResult(algorithm), executor));
+		}
+		List<PathFinderResult> newResults = new ArrayList<>();
+		for (CompletableFuture<PathFinderResult> run : runs) {
+			newResults.add(run.join());
+		}
+		List<PathFinderResult> oldResults = results;
+		results = newResults;
+		oldResults.forEach(PathFinderResult::dispose);
+	}
+
+	/**
+	 * Answers the queries from one source to many targets by a single Dijkstra search that stops when
+	 * all targets are settled.
+	 * 
+	 * @param source  source cell
+	 * @param targets target cells
+	 * @return answers in the order of the targets
+	 */
+	public QueryAnswer[] findPaths(int source, int[] targets) {
+		OneToManySearch search = new OneToManySearch(map);
+		Path[] paths = search.findPaths(source, targets);
+		QueryAnswer[] answers = new QueryAnswer[targets.length];
+		for (int i = 0; i < targets.length; ++i) {
+			answers[i] = new QueryAnswer(source, targets[i], paths[i], search.getCost(targets[i]));
+		}
+		return answers;
+	}
+
+	/**
+	 * Answers the queries {@code (sources[i], targets[i])}. Queries with the same source are answered
+	 * by a single search (see {@link #findPaths(int, int[])}), the searches for different sources run
+	 * in parallel on the configured executor. The calling thread waits for all searches.
+	 * 
+	 * @param sources source cells
+	 * @param targets target cells, same number as sources
+	 * @return answers in the order of the queries
+	 */
+	public QueryAnswer[] findPaths(int[] sources, int[] targets) {
+		if (sources.length != targets.length) {
+			throw new IllegalArgumentException(
+					String.format("Number of sources (%d) and targets (%d) differ", sources.length, targets.length));
+		}
+		Map<Integer, List<Integer>> queriesBySource = new LinkedHashMap<>();
+		for (int i = 0; i < sources.length; ++i) {
+			queriesBySource.computeIfAbsent(sources[i], source -> new ArrayList<>()).add(i);
+		}
+		QueryAnswer[] answers = new QueryAnswer[sources.length];
+		List<CompletableFuture<Void>> runs = new ArrayList<>();
+		for (Map.Entry<Integer, List<Integer>> group : queriesBySource.entrySet()) {
+			runs.add(CompletableFuture.runAsync(() -> {
+				List<Integer> queries = group.getValue();
+				int[] groupTargets = queries.stream().mapToInt(i -> targets[i]).toArray();
+				QueryAnswer[] groupAnswers = findPaths(group.getKey(), groupTargets);
+				for (int j = 0; j < groupAnswers.length; ++j) {
+					answers[queries.get(j)] = groupAnswers[j];
+				}
+			}, executor));
+		}
+		runs.forEach(CompletableFuture::join);
+		return answers;
+	}
+
+	/**
+	 * Answers the queries {@code (sources[i], targets[i])} with the given algorithm. The queries are
+	 * split into chunks that run in parallel on the configured executor, each chunk with its own path
+	 * finder. The calling thread waits for all chunks. The path cache is not used.
+	 * 
+	 * @param algorithm path finder algorithm
+	 * @param sources   source cells
+	 * @param targets   target cells, same number as sources
+	 * @return answers in the order of the queries
+	 */
+	public QueryAnswer[] findPaths(PathFinderAlgorithm algorithm, int[] sources, int[] targets) {
+		if (sources.length != targets.length) {
+			throw new IllegalArgumentException(
+					String.format("Number of sources (%d) and targets (%d) differ", sources.length, targets.length));
+		}
+		int numChunks = Math.min(sources.length, 4 * Runtime.getRuntime().availableProcessors());
+		QueryAnswer[] answers = new QueryAnswer[sources.length];
+		List<CompletableFuture<Void>> runs = new ArrayList<>();
+		for (int chunk = 0; chunk < numChunks; ++chunk) {
+			int first = (int) ((long) chunk * sources.length / numChunks);
+			int last = (int) ((long) (chunk + 1) * sources.length / numChunks);
+			runs.add(CompletableFuture.runAsync(() -> {
+				int[] currentTarget = new int[1];
+				// the shared LPA* instance is kept for the interactive runs
+				ObservableGraphSearch pathFinder = algorithm == PathFinderAlgorithm.LPAStar
+						? new LifelongPlanningAStar(map)
+						: newPathFinder(algorithm, () -> currentTarget[0], null);
+				for (int i = first; i < last; ++i) {
+					currentTarget[0] = targets[i];
+					long start = System.nanoTime();
+					Path path = pathFinder.findPath(sources[i], targets[i]);
+					metrics.algorithm(algorithm).recordQuery(System.nanoTime() - start, path != Path.NULL);
+					answers[i] = new QueryAnswer(sources[i], targets[i], path,
+							path == Path.NULL ? Path.INFINITE_COST : pathFinder.getCost(targets[i]));
+				}
+			}, executor));
+		}
+		runs.forEach(CompletableFuture::join);
+		return answers;
+	}
+
+	private PathFinderResult computeResult(PathFinderAlgorithm algorithm) {
+		PathFinderResult result = newResult(algorithm);
+		if (!isMeasuring() && fillResultFromCache(result, algorithm)) {
+			return result;
+		}
+		runTimed(result, algorithm);
+		cacheResult(result, algorithm);
+		return result;
+	}
+
+	/*
+	 * Runs the path finder of the result with the configured warm-up and timed runs and fills the
+	 * result from the last run. The statistics are reset before each timed run. The allocations of the
+	 * last run are counted, including those of the statistics observer. Timed runs are recorded in the
+	 * metrics. Repetition stops when a run is cancelled or exceeds the search budget.
+	 */
+	private void runTimed(PathFinderResult result, PathFinderAlgorithm algorithm) {
+		for (int i = 0; i < warmupRuns; ++i) {
+			resetProbes(result);
+			SearchRunEvent event = new SearchRunEvent();
+			event.begin();
+			Path path = runSearch(result);
+			commitRunEvent(event, result, "warm-up", path, 0);
+			if (!result.isComplete()) {
+				fillResult(result, path, 0);
+				return;
+			}
+		}
+		long[] samples = new long[timedRuns];
+		int numSamples = 0;
+		Path path = Path.NULL;
+		long allocatedBytes = AllocationCounter.NOT_AVAILABLE;
+		while (numSamples < timedRuns) {
+			resetProbes(result);
+			SearchRunEvent event = new SearchRunEvent();
+			event.begin();
+			long allocatedBefore = AllocationCounter.currentThreadAllocatedBytes();
+			long start = System.nanoTime();
+			path = runSearch(result);
+			long nanos = System.nanoTime() - start;
+			if (allocatedBefore != AllocationCounter.NOT_AVAILABLE) {
+				allocatedBytes = AllocationCounter.currentThreadAllocatedBytes() - allocatedBefore;
+			}
+			commitRunEvent(event, result, "timed", path, 0);
+			if (result.getTermination() == SearchHandle.Termination.CANCELLED) {
+				break;
+			}
+			samples[numSamples++] = nanos;
+			metrics.algorithm(algorithm).recordSearch(nanos, result.getStatistics().getNumExpansions(),
+					result.getStatistics().getPeakOpenListSize(), path != Path.NULL);
+			if (!result.isComplete()) {
+				break;
+			}
+		}
+		Timing timing = Timing.of(Arrays.copyOf(samples, numSamples));
+		fillResult(result, path, timing.medianMillis());
+		result.setTiming(timing);
+		result.setAllocatedBytes(allocatedBytes);
+	}
+
+	private void resetProbes(PathFinderResult result) {
+		result.getStatistics().reset();
+		if (result.getHeuristicProbe() != null) {
+			result.getHeuristicProbe().reset();
+		}
+	}
+
+	/*
+	 * Ends the event of a run and commits it if the flight recorder wants it.
+	 */
+	private void commitRunEvent(SearchRunEvent event, PathFinderResult result, String mode, Path path,
+			long observerNanos) {
+		event.end();
+		if (!event.shouldCommit()) {
+			return;
+		}
+		SearchStatistics statistics = result.getStatistics();
+		HeuristicProbe probe = result.getHeuristicProbe();
+		event.algorithm = result.getEffectivePathFinderName();
+		event.mode = mode;
+		event.termination = result.getTermination().toString();
+		event.source = source;
+		event.target = target;
+		event.pathLength = path.numEdges();
+		event.cost = path == Path.NULL ? Path.INFINITE_COST : result.getPathFinder().getCost(target);
+		event.touched = statistics.getNumTouched();
+		event.closed = statistics.getNumClosed();
+		event.expansions = statistics.getNumExpansions();
+		event.peakOpen = statistics.getPeakOpenListSize();
+		event.heuristicCalls = probe != null ? probe.getCalls() : 0;
+		event.heuristicTime = probe != null ? probe.getEstimatedNanos() : 0;
+		event.observerTime = observerNanos;
+		event.commit();
+	}
+
+	private PathCache.Key cacheKey(PathFinderAlgorithm algorithm) {
+		return new PathCache.Key(algorithm, heuristic, source, target);
+	}
+
+	private boolean fillResultFromCache(PathFinderResult result, PathFinderAlgorithm algorithm) {
+		if (!pathCache.isEnabled()) {
+			return false;
+		}
+		SearchRunEvent event = new SearchRunEvent();
+		event.begin();
+		StopWatch watch = new StopWatch();
+		watch.start();
+		PathCache.Entry entry = pathCache.get(cacheKey(algorithm));
+		watch.stop();
+		if (entry == null) {
+			metrics.algorithm(algorithm).recordCacheMiss();
+			return false;
+		}
+		metrics.algorithm(algorithm).recordCacheHit();
+		result.setPath(entry.path());
+		result.setCost(entry.cost());
+		result.setRunningTimeMillis(watch.getMillis());
+		result.setCached(true);
+		commitRunEvent(event, result, "cached", entry.path(), 0);
+		return true;
+	}
+
+	private void cacheResult(PathFinderResult result, PathFinderAlgorithm algorithm) {
+		if (pathCache.isEnabled() && result.isComplete()) {
+			pathCache.put(cacheKey(algorithm), new PathCache.Entry(result.getPath(), result.getCost()));
+		}
+	}
+
 	public void runPathFinder(int pathFinderIndex) {
 		runPathFinder(pathFinderIndex, null);
 	}
 
+	/**
+	 * Runs the path finder and stores its result. Without observer, the path finder is run as
+	 * configured by {@link #setMeasurement(int, int)} and, if not measuring, a cached answer is used if
+	 * available.
+	 * 
+	 * @param pathFinderIndex index of path finder
+	 * @param observer        search observer or {@code null}
+	 */
 	public void runPathFinder(int pathFinderIndex, GraphSearchObserver observer) {
 		clearResult(pathFinderIndex);
-		ObservableGraphSearch pathFinder = getPathFinder(pathFinderIndex);
-		if (observer != null) {
-			pathFinder.addObserver(observer);
+		PathFinderResult result = getResultAtIndex(pathFinderIndex);
+		if (observer == null) {
+			if (!isMeasuring() && fillResultFromCache(result, getAlgorithm(pathFinderIndex))) {
+				return;
+			}
+			runTimed(result, getAlgorithm(pathFinderIndex));
+			cacheResult(result, getAlgorithm(pathFinderIndex));
+			return;
 		}
+		ObservableGraphSearch pathFinder = getPathFinder(pathFinderIndex);
+		TimedObserver timedObserver = new SearchRunEvent().isEnabled() ? new TimedObserver(observer) : null;
+		GraphSearchObserver runObserver = timedObserver != null ? timedObserver : observer;
+		pathFinder.addObserver(runObserver);
+		SearchRunEvent event = new SearchRunEvent();
+		event.begin();
 		StopWatch watch = new StopWatch();
 		watch.start();
-		Path path = pathFinder.findPath(source, target);
-		watch.stop();
-		if (observer != null) {
-			pathFinder.removeObserver(observer);
+		Path path;
+		try {
+			path = runSearch(result);
+		} finally {
+			watch.stop();
+			pathFinder.removeObserver(runObserver);
 		}
-		setResult(pathFinder, path, watch.getMillis());
+		commitRunEvent(event, result, "animated", path, timedObserver != null ? timedObserver.getNanos() : 0);
+		fillResult(result, path, watch.getMillis());
+		cacheResult(result, getAlgorithm(pathFinderIndex));
 	}
 }
\ No newline at end of file
@@ -16,26 +16,61 @@ public class PathFinderResult {
 
 	private final ObservableGraphSearch pathFinder;
 	private final String pathFinderName;
+	private final SearchStatistics statistics = new SearchStatistics();
 	private Path path;
 	private BitSet pathSet;
 	private float runningTimeMillis;
+	private Timing timing;
+	private float preprocessingTimeMillis;
 	private double cost;
 	private long numTouchedVertices;
 	private long numClosedVertices;
+	private long peakOpenListSize;
+	private double expansionsPerSecond;
+	private long allocatedBytes;
+	private long stateSizeBytes;
+	private boolean cached;
+	private HeuristicProbe heuristicProbe;
+	private SearchHandle.Termination termination;
+	private int bestCell;
+	private String fallback;
 
 	public PathFinderResult(ObservableGraphSearch pathFinder, String pathFinderName) {
 		this.pathFinder = pathFinder;
 		this.pathFinderName = pathFinderName;
+		if (pathFinder != null) {
+			pathFinder.addObserver(statistics);
+		}
 		clear();
 	}
 
+	/**
+	 * Detaches this result from its path finder. Needed for path finders that are reused by several
+	 * results.
+	 */
+	public void dispose() {
+		if (pathFinder != null) {
+			pathFinder.removeObserver(statistics);
+		}
+	}
+
 	public void clear() {
 		path = Path.NULL;
 		this.pathSet = new BitSet();
 		this.runningTimeMillis = 0;
+		this.timing = Timing.NONE;
+		this.preprocessingTimeMillis = 0;
 		this.cost = 0;
 		this.numTouchedVertices = 0;
 		this.numClosedVertices = 0;
+		this.peakOpenListSize = 0;
+		this.expansionsPerSecond = 0;
+		this.allocatedBytes = AllocationCounter.NOT_AVAILABLE;
+		this.stateSizeBytes = 0;
+		this.cached = false;
+		this.termination = SearchHandle.Termination.COMPLETED;
+		this.bestCell = -1;
+		statistics.reset();
 	}
 
 	public ObservableGraphSearch getPathFinder() {
@@ -46,6 +81,10 @@ public class PathFinderResult {
 		return pathFinderName;
 	}
 
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
 	public boolean pathContains(int cell) {
 		return pathSet.get(cell);
 	}
@@ -54,6 +93,22 @@ public class PathFinderResult {
 		return runningTimeMillis;
 	}
 
+	/**
+	 * @return running time distribution of the timed runs, {@link Timing#NONE} for animated or cached
+	 *         results
+	 */
+	public Timing getTiming() {
+		return timing;
+	}
+
+	/**
+	 * @return time spent building data precomputed for the path finder, not included in the running
+	 *         time
+	 */
+	public float getPreprocessingTimeMillis() {
+		return preprocessingTimeMillis;
+	}
+
 	public int getPathLength() {
 		return path.numEdges();
 	}
@@ -70,13 +125,92 @@ public class PathFinderResult {
 		return numClosedVertices;
 	}
 
+	public long getPeakOpenListSize() {
+		return peakOpenListSize;
+	}
+
+	public double getExpansionsPerSecond() {
+		return expansionsPerSecond;
+	}
+
+	/**
+	 * @return bytes allocated by the (last timed) run of the path finder or
+	 *         {@link AllocationCounter#NOT_AVAILABLE} for animated or cached results
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return estimated size of the search state kept by the path finder after the run
+	 */
+	public long getStateSizeBytes() {
+		return stateSizeBytes;
+	}
+
+	/**
+	 * @return how the run ended, a run that stopped early has no path
+	 */
+	public SearchHandle.Termination getTermination() {
+		return termination;
+	}
+
+	/**
+	 * @return if the run has not been stopped by cancellation or its budget
+	 */
+	public boolean isComplete() {
+		return termination == SearchHandle.Termination.COMPLETED;
+	}
+
+	/**
+	 * @return for a run that stopped early the expanded cell closest to the target, -1 if unknown
+	 */
+	public int getBestCell() {
+		return bestCell;
+	}
+
+	/**
+	 * @return description of the variant that runs instead of the named algorithm (e.g. JPS+ without
+	 *         jump table) or {@code null} if the algorithm runs as named
+	 */
+	public String getFallback() {
+		return fallback;
+	}
+
+	/**
+	 * @return name of the path finder including the fallback, if any
+	 */
+	public String getEffectivePathFinderName() {
+		return fallback != null ? pathFinderName + " (" + fallback + ")" : pathFinderName;
+	}
+
+	/**
+	 * @return if the path was taken from the path cache instead of running the path finder
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
 	public Path getPath() {
 		return path;
 	}
 
+	/**
+	 * @return probe of the heuristic used by the path finder or {@code null} if the heuristic is not
+	 *         probed
+	 */
+	HeuristicProbe getHeuristicProbe() {
+		return heuristicProbe;
+	}
+
+	void setHeuristicProbe(HeuristicProbe heuristicProbe) {
+		this.heuristicProbe = heuristicProbe;
+	}
+
 	public void setPath(Path path) {
+		// only clear the bits of the previous path, the set may span a huge map
+		this.path.forEach(pathSet::clear);
 		this.path = path;
-		pathSet.clear();
 		path.forEach(pathSet::set);
 	}
 
@@ -84,6 +218,22 @@ public class PathFinderResult {
 		this.runningTimeMillis = runningTimeMillis;
 	}
 
+	public void setTiming(Timing timing) {
+		this.timing = timing;
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	public void setStateSizeBytes(long stateSizeBytes) {
+		this.stateSizeBytes = stateSizeBytes;
+	}
+
+	public void setPreprocessingTimeMillis(float preprocessingTimeMillis) {
+		this.preprocessingTimeMillis = preprocessingTimeMillis;
+	}
+
 	public void setCost(double cost) {
 		this.cost = cost;
 	}
@@ -95,4 +245,28 @@ public class PathFinderResult {
 	public void setNumClosedVertices(long numClosedVertices) {
 		this.numClosedVertices = numClosedVertices;
 	}
+
+	public void setPeakOpenListSize(long peakOpenListSize) {
+		this.peakOpenListSize = peakOpenListSize;
+	}
+
+	public void setExpansionsPerSecond(double expansionsPerSecond) {
+		this.expansionsPerSecond = expansionsPerSecond;
+	}
+
+	public void setTermination(SearchHandle.Termination termination) {
+		this.termination = termination;
+	}
+
+	public void setBestCell(int bestCell) {
+		this.bestCell = bestCell;
+	}
+
+	public void setCached(boolean cached) {
+		this.cached = cached;
+	}
+
+	void setFallback(String fallback) {
+		this.fallback = fallback;
+	}
 }
\ No newline at end of file
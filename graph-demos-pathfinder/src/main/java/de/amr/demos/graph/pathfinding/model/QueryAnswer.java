@@ -0,0 +1,16 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Answer of a path query, see {@link PathFinderModel#findPaths(int, int[])}.
+ * 
+ * @param source source cell
+ * @param target target cell
+ * @param path   path found or {@link Path#NULL} if no path was found
+ * @param cost   path cost or {@link Path#INFINITE_COST} if no path was found
+ * 
+ * @author Armin Reichert
+ */
+public record QueryAnswer(int source, int target, Path path, double cost) {
+}
@@ -0,0 +1,29 @@
+package de.amr.demos.graph.pathfinding.model;
+
+/**
+ * Limits of a path finder run. A limit of 0 means unlimited.
+ *
+ * @param maxExpansions  maximum number of expanded cells
+ * @param timeLimitNanos maximum running time in nanoseconds
+ *
+ * @author Armin Reichert
+ */
+public record SearchBudget(long maxExpansions, long timeLimitNanos) {
+
+	public static final SearchBudget UNLIMITED = new SearchBudget(0, 0);
+
+	public SearchBudget {
+		if (maxExpansions < 0 || timeLimitNanos < 0) {
+			throw new IllegalArgumentException(
+					String.format("Illegal search budget: %d expansions, %d ns", maxExpansions, timeLimitNanos));
+		}
+	}
+
+	public static SearchBudget ofMillis(long maxExpansions, long timeLimitMillis) {
+		return new SearchBudget(maxExpansions, timeLimitMillis * 1_000_000);
+	}
+
+	public boolean isUnlimited() {
+		return maxExpansions == 0 && timeLimitNanos == 0;
+	}
+}
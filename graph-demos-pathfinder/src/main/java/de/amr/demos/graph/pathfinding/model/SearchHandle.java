@@ -0,0 +1,149 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.OptionalInt;
+import java.util.function.IntToDoubleFunction;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.pathfinder.api.GraphSearch;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Handle of a path finder run that can be cancelled from another thread and stops when its budget is
+ * exhausted.
+ * <p>
+ * The search is driven step by step like {@link GraphSearch#findPath(int, int)}, the handle checks
+ * for cancellation and the expansion limit before each expansion and for the time limit every
+ * {@value #TIME_CHECK_INTERVAL} expansions. A run that stops early keeps the cell closest to the
+ * target among the expanded cells.
+ *
+ * @author Armin Reichert
+ */
+public class SearchHandle {
+
+	public enum Termination {
+		COMPLETED, CANCELLED, EXPANSION_LIMIT, TIME_LIMIT;
+
+		@Override
+		public String toString() {
+			switch (this) {
+			case COMPLETED:
+				return "completed";
+			case CANCELLED:
+				return "cancelled";
+			case EXPANSION_LIMIT:
+				return "expansion limit";
+			case TIME_LIMIT:
+				return "time limit";
+			default:
+				return name();
+			}
+		}
+	}
+
+	private static final int TIME_CHECK_INTERVAL = 16;
+
+	private final GraphSearch pathFinder;
+	private final SearchBudget budget;
+	private final IntToDoubleFunction fnDistanceToTarget;
+	private volatile boolean cancelled;
+	private Termination termination;
+	private long numExpansions;
+	private int bestCell = -1;
+
+	/**
+	 * @param pathFinder         path finder
+	 * @param budget             limits of the run
+	 * @param fnDistanceToTarget distance of a cell to the target, used to select the best cell
+	 */
+	public SearchHandle(GraphSearch pathFinder, SearchBudget budget, IntToDoubleFunction fnDistanceToTarget) {
+		this.pathFinder = pathFinder;
+		this.budget = budget;
+		this.fnDistanceToTarget = fnDistanceToTarget;
+	}
+
+	/**
+	 * Requests the run to stop before the next expansion.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Runs the path finder.
+	 *
+	 * @param source source cell
+	 * @param target target cell
+	 * @return the path found or {@link Path#NULL} if there is none or the run stopped early
+	 */
+	public Path run(int source, int target) {
+		long deadline = budget.timeLimitNanos() > 0 ? System.nanoTime() + budget.timeLimitNanos() : 0;
+		long maxExpansions = budget.maxExpansions() > 0 ? budget.maxExpansions() : Long.MAX_VALUE;
+		numExpansions = 0;
+		bestCell = source;
+		double bestDistance = fnDistanceToTarget.applyAsDouble(source);
+		pathFinder.start(source, target);
+		while (pathFinder.canExplore()) {
+			if (cancelled) {
+				termination = Termination.CANCELLED;
+				return Path.NULL;
+			}
+			if (numExpansions >= maxExpansions) {
+				termination = Termination.EXPANSION_LIMIT;
+				return Path.NULL;
+			}
+			if (deadline != 0 && numExpansions % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+				termination = Termination.TIME_LIMIT;
+				return Path.NULL;
+			}
+			OptionalInt next = pathFinder.getNextVertex();
+			++numExpansions;
+			if (pathFinder.exploreVertex()) {
+				termination = Termination.COMPLETED;
+				bestCell = target;
+				return pathFinder.buildPath(target);
+			}
+			if (next.isPresent() && pathFinder.getState(next.getAsInt()) == TraversalState.COMPLETED) {
+				double distance = fnDistanceToTarget.applyAsDouble(next.getAsInt());
+				if (distance < bestDistance) {
+					bestDistance = distance;
+					bestCell = next.getAsInt();
+				}
+			}
+		}
+		termination = Termination.COMPLETED;
+		return Path.NULL;
+	}
+
+	/**
+	 * @return how the last run ended, {@code null} before the first run
+	 */
+	public Termination getTermination() {
+		return termination;
+	}
+
+	/**
+	 * @return number of expansions of the last run
+	 */
+	public long getNumExpansions() {
+		return numExpansions;
+	}
+
+	/**
+	 * @return the target if the path has been found, otherwise the expanded cell closest to the target
+	 */
+	public int getBestCell() {
+		return bestCell;
+	}
+
+	/**
+	 * @return path to the best cell as stored by the path finder (for hierarchical searches a path over
+	 *         abstract nodes)
+	 */
+	public Path getPartialPath() {
+		return bestCell == -1 ? Path.NULL : pathFinder.buildPath(bestCell);
+	}
+}
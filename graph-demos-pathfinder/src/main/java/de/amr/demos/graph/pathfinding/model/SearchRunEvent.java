@@ -0,0 +1,76 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one path finder run. The event duration spans the search from start to
+ * end.
+ * <p>
+ * The heuristic time is sampled: only every {@value HeuristicProbe#SAMPLE_INTERVAL}th call is timed
+ * and the total is extrapolated. Heuristic and observer times are only measured if this event was
+ * enabled when the path finder was created resp. run.
+ *
+ * @author Armin Reichert
+ */
+@Name("de.amr.pathfinding.SearchRun")
+@Label("Path Finder Run")
+@Category("Path Finder Demo")
+@Description("Run of a path finder from source to target")
+@StackTrace(false)
+public class SearchRunEvent extends Event {
+
+	@Label("Algorithm")
+	public String algorithm;
+
+	@Label("Mode")
+	@Description("warm-up, timed, animated or cached")
+	public String mode;
+
+	@Label("Termination")
+	@Description("completed, cancelled, expansion limit or time limit")
+	public String termination;
+
+	@Label("Source")
+	public int source;
+
+	@Label("Target")
+	public int target;
+
+	@Label("Path Length")
+	@Description("Number of edges, -1 if no path was found")
+	public int pathLength;
+
+	@Label("Cost")
+	public double cost;
+
+	@Label("Touched Cells")
+	public long touched;
+
+	@Label("Closed Cells")
+	public long closed;
+
+	@Label("Expansions")
+	public long expansions;
+
+	@Label("Peak Open List Size")
+	public long peakOpen;
+
+	@Label("Heuristic Calls")
+	public long heuristicCalls;
+
+	@Label("Heuristic Time")
+	@Description("Estimated from sampled calls")
+	@Timespan(Timespan.NANOSECONDS)
+	public long heuristicTime;
+
+	@Label("Observer Time")
+	@Description("Time spent in the callbacks of the search observer, e.g. the animation")
+	@Timespan(Timespan.NANOSECONDS)
+	public long observerTime;
+}
@@ -0,0 +1,84 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.BitSet;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.pathfinder.api.GraphSearchObserver;
+
+/**
+ * Search observer maintaining the statistics of a path-finder run incrementally, so reading them
+ * costs O(1) instead of a scan over all map cells.
+ * <p>
+ * Cells are counted once even if a search (e.g. a bidirectional one) reports them more than once.
+ * Counters are written by the search thread only and may be read from any thread.
+ *
+ * @author Armin Reichert
+ */
+public class SearchStatistics implements GraphSearchObserver {
+
+	private final BitSet touchedCells = new BitSet();
+	private final BitSet closedCells = new BitSet();
+	private volatile long numTouched;
+	private volatile long numClosed;
+	private volatile long numExpansions;
+	private volatile long openListSize;
+	private volatile long peakOpenListSize;
+
+	public void reset() {
+		touchedCells.clear();
+		closedCells.clear();
+		numTouched = 0;
+		numClosed = 0;
+		numExpansions = 0;
+		openListSize = 0;
+		peakOpenListSize = 0;
+	}
+
+	@Override
+	public void vertexStateChanged(int v, TraversalState oldState, TraversalState newState) {
+		if (newState != TraversalState.UNVISITED && !touchedCells.get(v)) {
+			touchedCells.set(v);
+			++numTouched;
+		}
+		if (newState == TraversalState.COMPLETED && !closedCells.get(v)) {
+			closedCells.set(v);
+			++numClosed;
+		}
+	}
+
+	@Override
+	public void vertexAddedToFrontier(int v) {
+		++openListSize;
+		if (openListSize > peakOpenListSize) {
+			peakOpenListSize = openListSize;
+		}
+	}
+
+	@Override
+	public void vertexRemovedFromFrontier(int v) {
+		if (openListSize > 0) {
+			--openListSize;
+		}
+		++numExpansions;
+	}
+
+	public long getNumTouched() {
+		return numTouched;
+	}
+
+	public long getNumClosed() {
+		return numClosed;
+	}
+
+	public long getNumExpansions() {
+		return numExpansions;
+	}
+
+	public long getOpenListSize() {
+		return openListSize;
+	}
+
+	public long getPeakOpenListSize() {
+		return peakOpenListSize;
+	}
+}
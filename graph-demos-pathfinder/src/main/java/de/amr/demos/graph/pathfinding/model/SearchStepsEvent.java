@@ -0,0 +1,37 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the start of a step-wise search or a number of steps executed.
+ *
+ * @author Armin Reichert
+ */
+@Name("de.amr.pathfinding.SearchSteps")
+@Label("Path Finder Steps")
+@Category("Path Finder Demo")
+@Description("Start or steps of a step-wise path finder run")
+@StackTrace(false)
+public class SearchStepsEvent extends Event {
+
+	@Label("Algorithm")
+	public String algorithm;
+
+	@Label("Started")
+	@Description("If the search was started, no steps are executed then")
+	public boolean started;
+
+	@Label("Requested Steps")
+	public int requestedSteps;
+
+	@Label("Executed Steps")
+	public int executedSteps;
+
+	@Label("Path Found")
+	public boolean pathFound;
+}
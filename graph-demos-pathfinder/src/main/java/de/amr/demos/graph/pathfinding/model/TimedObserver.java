@@ -0,0 +1,51 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.pathfinder.api.GraphSearchObserver;
+
+/**
+ * Search observer measuring the time spent in the callbacks of another observer.
+ *
+ * @author Armin Reichert
+ */
+class TimedObserver implements GraphSearchObserver {
+
+	private final GraphSearchObserver observer;
+	private long nanos;
+
+	TimedObserver(GraphSearchObserver observer) {
+		this.observer = observer;
+	}
+
+	long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public void vertexAddedToFrontier(int v) {
+		long start = System.nanoTime();
+		observer.vertexAddedToFrontier(v);
+		nanos += System.nanoTime() - start;
+	}
+
+	@Override
+	public void vertexRemovedFromFrontier(int v) {
+		long start = System.nanoTime();
+		observer.vertexRemovedFromFrontier(v);
+		nanos += System.nanoTime() - start;
+	}
+
+	@Override
+	public void vertexStateChanged(int v, TraversalState oldState, TraversalState newState) {
+		long start = System.nanoTime();
+		observer.vertexStateChanged(v, oldState, newState);
+		nanos += System.nanoTime() - start;
+	}
+
+	@Override
+	public void edgeTraversed(int either, int other) {
+		long start = System.nanoTime();
+		observer.edgeTraversed(either, other);
+		nanos += System.nanoTime() - start;
+	}
+}
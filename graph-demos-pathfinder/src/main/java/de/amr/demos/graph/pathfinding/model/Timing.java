@@ -0,0 +1,59 @@
+package de.amr.demos.graph.pathfinding.model;
+
+import java.util.Arrays;
+
+/**
+ * Running time distribution of repeated path finder runs, measured with {@link System#nanoTime()}.
+ * Percentiles use the nearest-rank method.
+ *
+ * @param repetitions number of timed runs, 0 if not measured
+ * @param minNanos    fastest run
+ * @param medianNanos median run
+ * @param p95Nanos    95th percentile
+ * @param p99Nanos    99th percentile
+ *
+ * @author Armin Reichert
+ */
+public record Timing(int repetitions, long minNanos, long medianNanos, long p95Nanos, long p99Nanos) {
+
+	public static final Timing NONE = new Timing(0, 0, 0, 0, 0);
+
+	/**
+	 * @param samples running times in nanoseconds, not modified
+	 * @return timing of the samples
+	 */
+	public static Timing of(long[] samples) {
+		if (samples.length == 0) {
+			return NONE;
+		}
+		long[] sorted = samples.clone();
+		Arrays.sort(sorted);
+		return new Timing(sorted.length, sorted[0], percentile(sorted, 50), percentile(sorted, 95),
+				percentile(sorted, 99));
+	}
+
+	private static long percentile(long[] sorted, int p) {
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	public boolean isMeasured() {
+		return repetitions > 0;
+	}
+
+	public float minMillis() {
+		return minNanos / 1_000_000f;
+	}
+
+	public float medianMillis() {
+		return medianNanos / 1_000_000f;
+	}
+
+	public float p95Millis() {
+		return p95Nanos / 1_000_000f;
+	}
+
+	public float p99Millis() {
+		return p99Nanos / 1_000_000f;
+	}
+}
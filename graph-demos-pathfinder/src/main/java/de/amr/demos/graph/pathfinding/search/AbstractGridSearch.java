@@ -0,0 +1,257 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.GraphSearchObserver;
+import de.amr.graph.pathfinder.api.ObservableGraphSearch;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Base class for searches operating directly on the cells of a map. Search state (parent, cost,
+ * traversal state) is kept in primitive arrays indexed by cell.
+ * <p>
+ * Edges are derived from the map content: two neighbor cells are connected iff none of them is a
+ * wall and, if the compact map forbids corner cutting, a diagonal move does not pass a wall corner.
+ * Edge costs are the euclidean distances of the cells (1 for straight, &radic;2 for diagonal
+ * moves), which is what {@code PathFinderModel} uses as edge labels.
+ *
+ * @author Armin Reichert
+ */
+public abstract class AbstractGridSearch implements ObservableGraphSearch {
+
+	protected static final double SQRT2 = Math.sqrt(2);
+
+	protected static final byte UNVISITED = 0;
+	protected static final byte VISITED = 1;
+	protected static final byte COMPLETED = 2;
+
+	private static final TraversalState[] STATES = { TraversalState.UNVISITED, TraversalState.VISITED,
+			TraversalState.COMPLETED };
+
+	protected final GridGraph2D<Tile, ?> map;
+	protected final CompactGridMap compactMap;
+	protected final int numCols;
+	protected final int numRows;
+	protected final boolean diagonal;
+	protected final boolean cornerCutting;
+	protected final VertexQueue open = new VertexQueue();
+	private final List<GraphSearchObserver> observers = new CopyOnWriteArrayList<>();
+
+	protected int[] parent;
+	protected double[] cost;
+	protected byte[] state;
+	protected int source = NO_VERTEX;
+	protected int target = NO_VERTEX;
+
+	protected AbstractGridSearch(GridGraph2D<Tile, ?> map) {
+		this.map = map;
+		this.compactMap = map instanceof CompactGridMap compact ? compact : null;
+		this.numCols = map.numCols();
+		this.numRows = map.numRows();
+		this.diagonal = map.getTopology().dirCount() == 8;
+		this.cornerCutting = compactMap == null || compactMap.isCornerCutting();
+	}
+
+	@Override
+	public void start(int source, int target) {
+		this.source = source;
+		this.target = target;
+		int numCells = map.numVertices();
+		if (parent == null || parent.length != numCells) {
+			parent = new int[numCells];
+			cost = new double[numCells];
+			state = new byte[numCells];
+		}
+		Arrays.fill(parent, NO_VERTEX);
+		Arrays.fill(cost, Path.INFINITE_COST);
+		Arrays.fill(state, UNVISITED);
+		open.clear();
+	}
+
+	@Override
+	public boolean canExplore() {
+		return !open.isEmpty();
+	}
+
+	@Override
+	public int getSource() {
+		return source;
+	}
+
+	@Override
+	public int getTarget() {
+		return target;
+	}
+
+	@Override
+	public int getParent(int v) {
+		return parent != null ? parent[v] : NO_VERTEX;
+	}
+
+	@Override
+	public double getCost(int v) {
+		return cost != null ? cost[v] : Path.INFINITE_COST;
+	}
+
+	@Override
+	public TraversalState getState(int v) {
+		return state != null ? STATES[state[v]] : TraversalState.UNVISITED;
+	}
+
+	/**
+	 * @param v vertex
+	 * @return admissible estimate of the cost from {@code v} to the target
+	 */
+	public double getEstimatedCostToTarget(int v) {
+		return target == NO_VERTEX ? 0 : gridDistance(v, target);
+	}
+
+	/**
+	 * @param v vertex
+	 * @return cost from the source plus estimated cost to the target
+	 */
+	public double getScore(int v) {
+		double g = getCost(v);
+		return g == Path.INFINITE_COST ? g : g + getEstimatedCostToTarget(v);
+	}
+
+	/**
+	 * @return time spent building precomputed data used by this search, reported separately from the
+	 *         search time
+	 */
+	public float getPreprocessingTimeMillis() {
+		return 0;
+	}
+
+	@Override
+	public OptionalInt getNextVertex() {
+		return open.isEmpty() ? OptionalInt.empty() : OptionalInt.of(open.peek());
+	}
+
+	/**
+	 * Removes queue entries of already completed vertices from the top of the queue.
+	 */
+	protected void discardCompleted() {
+		while (!open.isEmpty() && state[open.peek()] == COMPLETED) {
+			open.poll();
+		}
+	}
+
+	protected void setState(int v, byte newState) {
+		byte oldState = state[v];
+		if (oldState != newState) {
+			state[v] = newState;
+			fireVertexStateChanged(v, oldState, newState);
+		}
+	}
+
+	// observers
+
+	protected void fireVertexStateChanged(int v, byte oldState, byte newState) {
+		for (GraphSearchObserver observer : observers) {
+			observer.vertexStateChanged(v, STATES[oldState], STATES[newState]);
+		}
+	}
+
+	@Override
+	public void addObserver(GraphSearchObserver observer) {
+		observers.add(observer);
+	}
+
+	@Override
+	public void removeObserver(GraphSearchObserver observer) {
+		observers.remove(observer);
+	}
+
+	protected void fireVertexAddedToFrontier(int v) {
+		for (GraphSearchObserver observer : observers) {
+			observer.vertexAddedToFrontier(v);
+		}
+	}
+
+	protected void fireVertexRemovedFromFrontier(int v) {
+		for (GraphSearchObserver observer : observers) {
+			observer.vertexRemovedFromFrontier(v);
+		}
+	}
+
+	protected void fireEdgeTraversed(int either, int other) {
+		for (GraphSearchObserver observer : observers) {
+			observer.edgeTraversed(either, other);
+		}
+	}
+
+	// map access
+
+	protected int col(int cell) {
+		return cell % numCols;
+	}
+
+	protected int row(int cell) {
+		return cell / numCols;
+	}
+
+	protected int cell(int col, int row) {
+		return row * numCols + col;
+	}
+
+	protected boolean isFree(int cell) {
+		return compactMap != null ? !compactMap.isWall(cell) : map.get(cell) != Tile.WALL;
+	}
+
+	/**
+	 * @return {@code true} if the position is inside the map and not a wall
+	 */
+	protected boolean isFree(int col, int row) {
+		return 0 <= col && col < numCols && 0 <= row && row < numRows && isFree(cell(col, row));
+	}
+
+	/**
+	 * @return {@code true} if the move by the given offset (one step) from the position leads to a free
+	 *         cell and is allowed by the topology and the corner rule
+	 */
+	protected boolean canMove(int col, int row, int dx, int dy) {
+		if (!isFree(col + dx, row + dy)) {
+			return false;
+		}
+		if (dx == 0 || dy == 0) {
+			return true;
+		}
+		return diagonal && (cornerCutting || isFree(col + dx, row) && isFree(col, row + dy));
+	}
+
+	/**
+	 * @return cost of a move by the given offset (straight or diagonal line)
+	 */
+	protected static double lineCost(int dx, int dy) {
+		int steps = Math.max(Math.abs(dx), Math.abs(dy));
+		return dx != 0 && dy != 0 ? steps * SQRT2 : steps;
+	}
+
+	/**
+	 * @return octile distance for 8-neighbor maps, Manhattan distance for 4-neighbor maps
+	 */
+	protected double gridDistance(int u, int v) {
+		int dx = Math.abs(col(u) - col(v)), dy = Math.abs(row(u) - row(v));
+		if (diagonal) {
+			return Math.max(dx, dy) + (SQRT2 - 1) * Math.min(dx, dy);
+		}
+		return dx + dy;
+	}
+
+	/**
+	 * @return estimated number of bytes of the search state arrays
+	 */
+	public long getStateSizeBytes() {
+		return parent == null ? 0 : 13L * parent.length;
+	}
+}
@@ -0,0 +1,17 @@
+package de.amr.demos.graph.pathfinding.search;
+
+/**
+ * Estimated path cost between two cells, taking and returning primitive values.
+ *
+ * @author Armin Reichert
+ */
+@FunctionalInterface
+public interface CellEstimate {
+
+	/**
+	 * @param from start cell
+	 * @param to   end cell
+	 * @return estimated cost of a path from {@code from} to {@code to}
+	 */
+	double estimate(int from, int to);
+}
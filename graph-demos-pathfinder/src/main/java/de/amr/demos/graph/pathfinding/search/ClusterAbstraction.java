@@ -0,0 +1,381 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.MapChangeListener;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Abstract graph for hierarchical path finding (HPA*, Botea, Müller and Schaeffer, 2004).
+ * <p>
+ * The map is partitioned into square clusters. Each maximal run of open cell pairs along the border
+ * of two clusters (an "entrance") gets one transition in its middle, or two at its ends if the run
+ * is long. On 8-neighbor maps, diagonal crossings that cannot be replaced by a straight crossing
+ * plus a step inside a cluster get their own transition, so the abstraction never loses
+ * connectivity. The cells of the transitions are the abstract nodes; the distances between the
+ * nodes of a cluster are computed by a search restricted to that cluster and cached.
+ * <p>
+ * Clusters are computed independently of each other, so building runs in parallel and a changed
+ * cell only requires recomputing its cluster (and the neighbor clusters if the cell is on the
+ * cluster border).
+ *
+ * @author Armin Reichert
+ */
+public class ClusterAbstraction implements MapChangeListener {
+
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+	/** Entrances at least this long get two transitions. */
+	private static final int MIN_DOUBLE_ENTRANCE_LENGTH = 6;
+
+	private static final double SQRT2 = Math.sqrt(2);
+
+	static final class Cluster {
+
+		// abstract nodes of this cluster, sorted by cell index
+		final int[] nodes;
+		// distances between the nodes inside the cluster, row-major
+		final double[] distances;
+		// transitions leaving the cluster
+		final int[] transitionFrom;
+		final int[] transitionTo;
+		final double[] transitionCost;
+
+		Cluster(int[] nodes, double[] distances, int[] transitionFrom, int[] transitionTo, double[] transitionCost) {
+			this.nodes = nodes;
+			this.distances = distances;
+			this.transitionFrom = transitionFrom;
+			this.transitionTo = transitionTo;
+			this.transitionCost = transitionCost;
+		}
+
+		int nodeIndex(int cell) {
+			return Arrays.binarySearch(nodes, cell);
+		}
+	}
+
+	private final GridGraph2D<Tile, ?> map;
+	private final CompactGridMap compactMap;
+	private final int numCols;
+	private final int numRows;
+	private final boolean diagonal;
+	private final int clusterSize;
+	private final int numClusterCols;
+	private final int numClusterRows;
+	private final Cluster[] clusters;
+	private final float buildTimeMillis;
+
+	public ClusterAbstraction(GridGraph2D<Tile, ?> map) {
+		this(map, DEFAULT_CLUSTER_SIZE);
+	}
+
+	public ClusterAbstraction(GridGraph2D<Tile, ?> map, int clusterSize) {
+		if (clusterSize < 2) {
+			throw new IllegalArgumentException("Illegal cluster size: " + clusterSize);
+		}
+		long start = System.nanoTime();
+		this.map = map;
+		this.compactMap = map instanceof CompactGridMap compact ? compact : null;
+		this.numCols = map.numCols();
+		this.numRows = map.numRows();
+		this.diagonal = map.getTopology().dirCount() == 8;
+		this.clusterSize = clusterSize;
+		numClusterCols = (numCols + clusterSize - 1) / clusterSize;
+		numClusterRows = (numRows + clusterSize - 1) / clusterSize;
+		clusters = new Cluster[numClusterCols * numClusterRows];
+		IntStream.range(0, clusters.length).parallel().forEach(k -> clusters[k] = computeCluster(k));
+		buildTimeMillis = (System.nanoTime() - start) / 1_000_000f;
+	}
+
+	public float getBuildTimeMillis() {
+		return buildTimeMillis;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	public int numClusters() {
+		return clusters.length;
+	}
+
+	/**
+	 * @return number of abstract nodes (transition cells)
+	 */
+	public long numNodes() {
+		return Arrays.stream(clusters).mapToLong(cluster -> cluster.nodes.length).sum();
+	}
+
+	/**
+	 * Updates the abstraction after the content of the given cell has changed.
+	 *
+	 * @param cell changed cell
+	 */
+	@Override
+	public void cellChanged(int cell) {
+		BitSet affected = new BitSet();
+		addAffectedClusters(cell, affected);
+		affected.stream().forEach(k -> clusters[k] = computeCluster(k));
+	}
+
+	/**
+	 * Updates the abstraction after the content of several cells has changed. Each affected cluster is
+	 * recomputed once, in parallel.
+	 *
+	 * @param cells changed cells
+	 */
+	@Override
+	public void cellsChanged(int[] cells) {
+		BitSet affected = new BitSet();
+		for (int cell : cells) {
+			addAffectedClusters(cell, affected);
+		}
+		affected.stream().parallel().forEach(k -> clusters[k] = computeCluster(k));
+	}
+
+	private void addAffectedClusters(int cell, BitSet affected) {
+		int col = cell % numCols, row = cell / numCols;
+		int clusterCol = col / clusterSize, clusterRow = row / clusterSize;
+		int x0 = clusterCol * clusterSize, y0 = clusterRow * clusterSize;
+		boolean border = col == x0 || row == y0 || col == Math.min(x0 + clusterSize, numCols) - 1
+				|| row == Math.min(y0 + clusterSize, numRows) - 1;
+		if (!border) {
+			affected.set(clusterRow * numClusterCols + clusterCol);
+			return;
+		}
+		for (int r = Math.max(0, clusterRow - 1); r <= Math.min(numClusterRows - 1, clusterRow + 1); ++r) {
+			for (int c = Math.max(0, clusterCol - 1); c <= Math.min(numClusterCols - 1, clusterCol + 1); ++c) {
+				affected.set(r * numClusterCols + c);
+			}
+		}
+	}
+
+	int clusterOf(int cell) {
+		return (cell / numCols / clusterSize) * numClusterCols + (cell % numCols) / clusterSize;
+	}
+
+	Cluster cluster(int k) {
+		return clusters[k];
+	}
+
+	/**
+	 * @param k    cluster index
+	 * @param cell cell inside the cluster
+	 * @return index of the cell inside the local arrays of the cluster
+	 */
+	int localIndex(int k, int cell) {
+		int x0 = (k % numClusterCols) * clusterSize, y0 = (k / numClusterCols) * clusterSize;
+		return (cell / numCols - y0) * clusterWidth(k) + (cell % numCols - x0);
+	}
+
+	private int clusterWidth(int k) {
+		int x0 = (k % numClusterCols) * clusterSize;
+		return Math.min(x0 + clusterSize, numCols) - x0;
+	}
+
+	private int clusterHeight(int k) {
+		int y0 = (k / numClusterCols) * clusterSize;
+		return Math.min(y0 + clusterSize, numRows) - y0;
+	}
+
+	private boolean isFree(int col, int row) {
+		if (col < 0 || col >= numCols || row < 0 || row >= numRows) {
+			return false;
+		}
+		int cell = row * numCols + col;
+		return compactMap != null ? !compactMap.isWall(cell) : map.get(cell) != Tile.WALL;
+	}
+
+	/**
+	 * Computes the distances from the given cell to all cells of its cluster, moving only inside the
+	 * cluster.
+	 *
+	 * @param from start cell
+	 * @return distances indexed by {@link #localIndex(int, int)}, {@link Path#INFINITE_COST} for
+	 *         unreachable cells
+	 */
+	double[] localDistances(int from) {
+		int k = clusterOf(from);
+		double[] dist = new double[clusterWidth(k) * clusterHeight(k)];
+		localSearch(k, from, -1, dist, null);
+		return dist;
+	}
+
+	/**
+	 * @param from start cell
+	 * @param to   target cell in the same cluster
+	 * @return shortest path inside the cluster, including both cells, or an empty array if the target
+	 *         cannot be reached inside the cluster
+	 */
+	int[] localPath(int from, int to) {
+		int k = clusterOf(from);
+		int width = clusterWidth(k), size = width * clusterHeight(k);
+		double[] dist = new double[size];
+		int[] parent = new int[size];
+		localSearch(k, from, to, dist, parent);
+		int toIndex = localIndex(k, to);
+		if (dist[toIndex] == Path.INFINITE_COST) {
+			return new int[0];
+		}
+		int x0 = (k % numClusterCols) * clusterSize, y0 = (k / numClusterCols) * clusterSize;
+		int length = 1;
+		for (int i = toIndex; parent[i] != -1; i = parent[i]) {
+			++length;
+		}
+		int[] path = new int[length];
+		for (int i = toIndex, j = length - 1; j >= 0; i = parent[i], --j) {
+			path[j] = (y0 + i / width) * numCols + x0 + i % width;
+		}
+		return path;
+	}
+
+	/*
+	 * Dijkstra search restricted to cluster k. Stops when the target (if any) is settled.
+	 */
+	private void localSearch(int k, int from, int to, double[] dist, int[] parent) {
+		int x0 = (k % numClusterCols) * clusterSize, y0 = (k / numClusterCols) * clusterSize;
+		int width = clusterWidth(k), height = clusterHeight(k);
+		Arrays.fill(dist, Path.INFINITE_COST);
+		if (parent != null) {
+			Arrays.fill(parent, -1);
+		}
+		boolean[] settled = new boolean[dist.length];
+		int fromIndex = localIndex(k, from), toIndex = to == -1 ? -1 : localIndex(k, to);
+		VertexQueue q = new VertexQueue();
+		dist[fromIndex] = 0;
+		q.add(fromIndex, 0);
+		while (!q.isEmpty()) {
+			int i = q.poll();
+			if (settled[i]) {
+				continue;
+			}
+			settled[i] = true;
+			if (i == toIndex) {
+				return;
+			}
+			int x = i % width, y = i / width;
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if ((dx == 0 && dy == 0) || (!diagonal && dx != 0 && dy != 0)) {
+						continue;
+					}
+					int nx = x + dx, ny = y + dy;
+					if (nx < 0 || nx >= width || ny < 0 || ny >= height || !isFree(x0 + nx, y0 + ny)) {
+						continue;
+					}
+					int j = ny * width + nx;
+					double d = dist[i] + (dx != 0 && dy != 0 ? SQRT2 : 1);
+					if (!settled[j] && d < dist[j]) {
+						dist[j] = d;
+						if (parent != null) {
+							parent[j] = i;
+						}
+						q.add(j, d);
+					}
+				}
+			}
+		}
+	}
+
+	private Cluster computeCluster(int k) {
+		int x0 = (k % numClusterCols) * clusterSize, y0 = (k / numClusterCols) * clusterSize;
+		int x1 = x0 + clusterWidth(k) - 1, y1 = y0 + clusterHeight(k) - 1;
+		TransitionList transitions = new TransitionList();
+		// straight entrances on the four sides
+		findEntrances(transitions, x1, y0, 1, 0, 0, 1, y1 - y0 + 1); // east
+		findEntrances(transitions, x0, y0, -1, 0, 0, 1, y1 - y0 + 1); // west
+		findEntrances(transitions, x0, y1, 0, 1, 1, 0, x1 - x0 + 1); // south
+		findEntrances(transitions, x0, y0, 0, -1, 1, 0, x1 - x0 + 1); // north
+		if (diagonal) {
+			for (int x = x0; x <= x1; ++x) {
+				for (int y = y0; y <= y1; ++y) {
+					if (x == x0 || x == x1 || y == y0 || y == y1) {
+						findDiagonalCrossings(transitions, x, y, x0, y0, x1, y1);
+					}
+				}
+			}
+		}
+		int[] nodes = IntStream.of(Arrays.copyOf(transitions.from, transitions.size)).distinct().sorted().toArray();
+		double[] distances = new double[nodes.length * nodes.length];
+		for (int i = 0; i < nodes.length; ++i) {
+			double[] dist = localDistances(nodes[i]);
+			for (int j = 0; j < nodes.length; ++j) {
+				distances[i * nodes.length + j] = dist[localIndex(k, nodes[j])];
+			}
+		}
+		return new Cluster(nodes, distances, Arrays.copyOf(transitions.from, transitions.size),
+				Arrays.copyOf(transitions.to, transitions.size), Arrays.copyOf(transitions.cost, transitions.size));
+	}
+
+	/*
+	 * Scans the border line starting at (x, y) in direction (sx, sy) and adds the transitions of each
+	 * run of open cell pairs crossing the border in direction (dx, dy).
+	 */
+	private void findEntrances(TransitionList transitions, int x, int y, int dx, int dy, int sx, int sy, int length) {
+		int runStart = -1;
+		for (int i = 0; i <= length; ++i) {
+			boolean open = i < length && isFree(x + i * sx, y + i * sy) && isFree(x + i * sx + dx, y + i * sy + dy);
+			if (open && runStart == -1) {
+				runStart = i;
+			} else if (!open && runStart != -1) {
+				int runEnd = i - 1;
+				if (runEnd - runStart + 1 < MIN_DOUBLE_ENTRANCE_LENGTH) {
+					int mid = (runStart + runEnd) / 2;
+					addStraightTransition(transitions, x + mid * sx, y + mid * sy, dx, dy);
+				} else {
+					addStraightTransition(transitions, x + runStart * sx, y + runStart * sy, dx, dy);
+					addStraightTransition(transitions, x + runEnd * sx, y + runEnd * sy, dx, dy);
+				}
+				runStart = -1;
+			}
+		}
+	}
+
+	private void addStraightTransition(TransitionList transitions, int x, int y, int dx, int dy) {
+		transitions.add(y * numCols + x, (y + dy) * numCols + x + dx, 1);
+	}
+
+	/*
+	 * Diagonal crossings are only needed if both cells of the "corner" are blocked, otherwise the
+	 * straight entrances already connect the two cells.
+	 */
+	private void findDiagonalCrossings(TransitionList transitions, int x, int y, int x0, int y0, int x1, int y1) {
+		if (!isFree(x, y)) {
+			return;
+		}
+		for (int dy = -1; dy <= 1; dy += 2) {
+			for (int dx = -1; dx <= 1; dx += 2) {
+				int nx = x + dx, ny = y + dy;
+				boolean outside = nx < x0 || nx > x1 || ny < y0 || ny > y1;
+				if (outside && isFree(nx, ny) && !isFree(nx, y) && !isFree(x, ny)) {
+					transitions.add(y * numCols + x, ny * numCols + nx, SQRT2);
+				}
+			}
+		}
+	}
+
+	private static class TransitionList {
+
+		int[] from = new int[16];
+		int[] to = new int[16];
+		double[] cost = new double[16];
+		int size;
+
+		void add(int fromCell, int toCell, double transitionCost) {
+			if (size == from.length) {
+				from = Arrays.copyOf(from, 2 * size);
+				to = Arrays.copyOf(to, 2 * size);
+				cost = Arrays.copyOf(cost, 2 * size);
+			}
+			from[size] = fromCell;
+			to[size] = toCell;
+			cost[size] = transitionCost;
+			++size;
+		}
+	}
+}
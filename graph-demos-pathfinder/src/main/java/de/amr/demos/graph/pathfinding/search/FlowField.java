@@ -0,0 +1,307 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.MapChangeListener;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridTopology;
+
+/**
+ * Distance field and direction table towards a single target cell ("flow field").
+ * <p>
+ * The distances of all cells to the target are computed by one Dijkstra wavefront starting at the
+ * target. Each free cell stores the direction (as defined by the map topology) of its neighbor on a
+ * shortest path to the target, so any number of agents can follow the field without searching.
+ * <p>
+ * After a cell has changed, only the affected part of the field is recomputed: if the cell has
+ * become a wall, the cells whose directions lead through it are reset and refilled from their
+ * neighbors; if it has become free, the decreased distances are propagated from the cell.
+ *
+ * @author Armin Reichert
+ */
+public class FlowField implements MapChangeListener {
+
+	/** Direction value of cells without a path to the target and of the target itself. */
+	public static final byte NO_DIRECTION = -1;
+
+	private static final float SQRT2 = (float) Math.sqrt(2);
+	private static final float INFINITE = Float.POSITIVE_INFINITY;
+	// bulk changes of more than 1/FULL_UPDATE_FRACTION of all cells trigger a full update
+	private static final int FULL_UPDATE_FRACTION = 16;
+
+	private final GridGraph2D<Tile, ?> map;
+	private final CompactGridMap compactMap;
+	private final int numCols;
+	private final int numRows;
+	private final GridTopology topology;
+	private final int target;
+	private final float[] distance;
+	private final byte[] direction;
+	// topology direction index by (dy + 1) * 3 + (dx + 1), -1 if no move
+	private final byte[] directionByOffset = new byte[9];
+	private final VertexQueue queue = new VertexQueue();
+	private final float buildTimeMillis;
+	// cells whose direction has changed since the last drain, may contain duplicates
+	private int[] changedCells = new int[16];
+	private int numChangedCells;
+	private boolean allCellsChanged;
+
+	public FlowField(GridGraph2D<Tile, ?> map, int target) {
+		long start = System.nanoTime();
+		this.map = map;
+		this.compactMap = map instanceof CompactGridMap compact ? compact : null;
+		this.numCols = map.numCols();
+		this.numRows = map.numRows();
+		this.topology = map.getTopology();
+		this.target = target;
+		Arrays.fill(directionByOffset, NO_DIRECTION);
+		for (int dir = 0; dir < topology.dirCount(); ++dir) {
+			directionByOffset[(topology.dy(dir) + 1) * 3 + topology.dx(dir) + 1] = (byte) dir;
+		}
+		distance = new float[numCols * numRows];
+		direction = new byte[numCols * numRows];
+		computeAll();
+		allCellsChanged = false;
+		buildTimeMillis = (System.nanoTime() - start) / 1_000_000f;
+	}
+
+	public int getTarget() {
+		return target;
+	}
+
+	public float getBuildTimeMillis() {
+		return buildTimeMillis;
+	}
+
+	/**
+	 * @param cell cell
+	 * @return distance to the target, {@link Float#POSITIVE_INFINITY} if the target is unreachable
+	 */
+	public float getDistance(int cell) {
+		return distance[cell];
+	}
+
+	/**
+	 * @param cell cell
+	 * @return topology direction towards the target or {@link #NO_DIRECTION}
+	 */
+	public int getDirection(int cell) {
+		return direction[cell];
+	}
+
+	/**
+	 * @param cell cell
+	 * @return next cell on a shortest path to the target or {@code NO_VERTEX}
+	 */
+	public int next(int cell) {
+		int dir = direction[cell];
+		return dir == NO_DIRECTION ? NO_VERTEX : cell + topology.dy(dir) * numCols + topology.dx(dir);
+	}
+
+	/**
+	 * Passes the cells whose direction has changed since the last call to the given action, e.g. to
+	 * redraw them.
+	 *
+	 * @param action receives the changed cells
+	 * @return {@code false} if the whole field has been recomputed, the action is not called then
+	 */
+	public boolean drainChangedCells(IntConsumer action) {
+		boolean all = allCellsChanged;
+		if (!all) {
+			for (int i = 0; i < numChangedCells; ++i) {
+				action.accept(changedCells[i]);
+			}
+		}
+		numChangedCells = 0;
+		allCellsChanged = false;
+		return !all;
+	}
+
+	/**
+	 * @return number of bytes used by the distance and direction arrays
+	 */
+	public long sizeBytes() {
+		return 5L * distance.length;
+	}
+
+	/**
+	 * Updates the field after the content of the given cell has changed.
+	 *
+	 * @param cell changed cell
+	 */
+	@Override
+	public void cellChanged(int cell) {
+		if (cell == target) {
+			computeAll();
+		} else if (isFree(cell)) {
+			queue.clear();
+			settleFromNeighbors(cell);
+			propagate();
+		} else if (distance[cell] != INFINITE) {
+			resetDependents(cell);
+			propagate();
+		}
+	}
+
+	/**
+	 * Updates the field after the content of several cells has changed. If a large part of the map has
+	 * changed, the field is recomputed from scratch.
+	 *
+	 * @param cells changed cells
+	 */
+	@Override
+	public void cellsChanged(int[] cells) {
+		if (cells.length > distance.length / FULL_UPDATE_FRACTION) {
+			computeAll();
+		} else {
+			for (int cell : cells) {
+				cellChanged(cell);
+			}
+		}
+	}
+
+	private void computeAll() {
+		Arrays.fill(distance, INFINITE);
+		Arrays.fill(direction, NO_DIRECTION);
+		allCellsChanged = true;
+		queue.clear();
+		if (isFree(target)) {
+			distance[target] = 0;
+			queue.add(target, 0);
+		}
+		propagate();
+	}
+
+	/*
+	 * Dijkstra wavefront from the queued cells. A neighbor is updated if the path over the current
+	 * cell is shorter than its current distance.
+	 */
+	private void propagate() {
+		while (!queue.isEmpty()) {
+			double key = queue.peekKey();
+			int u = queue.poll();
+			if (key != distance[u]) {
+				continue; // outdated queue entry
+			}
+			int col = u % numCols, row = u / numCols;
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					int dir = directionByOffset[(dy + 1) * 3 + dx + 1];
+					if (dir == NO_DIRECTION || !isFree(col + dx, row + dy)) {
+						continue;
+					}
+					int v = u + dy * numCols + dx;
+					float newDistance = distance[u] + (dx != 0 && dy != 0 ? SQRT2 : 1);
+					if (newDistance < distance[v]) {
+						distance[v] = newDistance;
+						// v moves opposite to the direction from u to v
+						setDirection(v, directionByOffset[(1 - dy) * 3 + 1 - dx]);
+						queue.add(v, newDistance);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Resets all cells whose directions lead through the given cell and queues them with the best
+	 * distance over their unaffected neighbors.
+	 */
+	private void resetDependents(int cell) {
+		int[] stack = new int[16];
+		int size = 0;
+		int numReset = 0;
+		int[] reset = new int[16];
+		distance[cell] = INFINITE;
+		setDirection(cell, NO_DIRECTION);
+		stack[size++] = cell;
+		while (size > 0) {
+			int u = stack[--size];
+			if (numReset == reset.length) {
+				reset = Arrays.copyOf(reset, 2 * numReset);
+			}
+			reset[numReset++] = u;
+			int col = u % numCols, row = u / numCols;
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if (directionByOffset[(dy + 1) * 3 + dx + 1] != NO_DIRECTION && isFree(col + dx, row + dy)) {
+						int v = u + dy * numCols + dx;
+						if (next(v) == u) {
+							distance[v] = INFINITE;
+							setDirection(v, NO_DIRECTION);
+							if (size == stack.length) {
+								stack = Arrays.copyOf(stack, 2 * size);
+							}
+							stack[size++] = v;
+						}
+					}
+				}
+			}
+		}
+		queue.clear();
+		for (int i = 0; i < numReset; ++i) {
+			if (reset[i] != cell) {
+				settleFromNeighbors(reset[i]);
+			}
+		}
+	}
+
+	/*
+	 * Sets the distance and direction of a free cell from its best neighbor and queues it.
+	 */
+	private void settleFromNeighbors(int v) {
+		int col = v % numCols, row = v / numCols;
+		for (int dy = -1; dy <= 1; ++dy) {
+			for (int dx = -1; dx <= 1; ++dx) {
+				int dir = directionByOffset[(dy + 1) * 3 + dx + 1];
+				if (dir != NO_DIRECTION && isFree(col + dx, row + dy)) {
+					int u = v + dy * numCols + dx;
+					float newDistance = distance[u] + (dx != 0 && dy != 0 ? SQRT2 : 1);
+					if (newDistance < distance[v]) {
+						distance[v] = newDistance;
+						setDirection(v, (byte) dir);
+					}
+				}
+			}
+		}
+		if (distance[v] != INFINITE) {
+			queue.add(v, distance[v]);
+		}
+	}
+
+	/*
+	 * Sets the direction of a cell and records the change. If too many cells have changed, the whole
+	 * field is reported as changed.
+	 */
+	private void setDirection(int cell, byte dir) {
+		if (direction[cell] == dir) {
+			return;
+		}
+		direction[cell] = dir;
+		if (allCellsChanged) {
+			return;
+		}
+		if (numChangedCells > direction.length / FULL_UPDATE_FRACTION) {
+			allCellsChanged = true;
+			numChangedCells = 0;
+			return;
+		}
+		if (numChangedCells == changedCells.length) {
+			changedCells = Arrays.copyOf(changedCells, 2 * numChangedCells);
+		}
+		changedCells[numChangedCells++] = cell;
+	}
+
+	private boolean isFree(int cell) {
+		return compactMap != null ? !compactMap.isWall(cell) : map.get(cell) != Tile.WALL;
+	}
+
+	private boolean isFree(int col, int row) {
+		return 0 <= col && col < numCols && 0 <= row && row < numRows && isFree(row * numCols + col);
+	}
+}
@@ -0,0 +1,131 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Breadth-first, Dijkstra, A* or greedy best-first search, depending on the priority of the open
+ * list. Unlike the library searches, the search state is kept in primitive arrays, so the search
+ * also fits on maps with 10^8 cells.
+ * <p>
+ * Breadth-first and greedy best-first search reach each cell only once, Dijkstra and A* update the
+ * cost of a cell when they find a cheaper path to it.
+ *
+ * @author Armin Reichert
+ */
+public class GridBestFirstSearch extends AbstractGridSearch {
+
+	public enum Priority {
+		/** Order of discovery (breadth-first search). */
+		DISCOVERY,
+		/** Cost from the source (Dijkstra). */
+		COST,
+		/** Cost from the source plus estimated cost to the target (A*). */
+		COST_AND_ESTIMATE,
+		/** Estimated cost to the target (greedy best-first search). */
+		ESTIMATE;
+
+		boolean updatesCost() {
+			return this == COST || this == COST_AND_ESTIMATE;
+		}
+	}
+
+	private final Priority priority;
+	private final CellEstimate fnEstimate;
+	private long numDiscovered;
+
+	/**
+	 * @param map        map
+	 * @param priority   priority of the open list
+	 * @param fnEstimate estimated cost between two cells, needed for priorities using the estimate
+	 */
+	public GridBestFirstSearch(GridGraph2D<Tile, ?> map, Priority priority, CellEstimate fnEstimate) {
+		super(map);
+		if ((priority == Priority.COST_AND_ESTIMATE || priority == Priority.ESTIMATE) && fnEstimate == null) {
+			throw new IllegalArgumentException("Priority " + priority + " needs an estimate function");
+		}
+		this.priority = priority;
+		this.fnEstimate = fnEstimate;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return if the search uses the estimate function
+	 */
+	public boolean isInformed() {
+		return fnEstimate != null;
+	}
+
+	@Override
+	public void start(int source, int target) {
+		super.start(source, target);
+		numDiscovered = 0;
+		cost[source] = 0;
+		setState(source, VISITED);
+		open.add(source, priority(source));
+		fireVertexAddedToFrontier(source);
+	}
+
+	@Override
+	public double getEstimatedCostToTarget(int v) {
+		return fnEstimate == null || target == NO_VERTEX ? 0 : fnEstimate.estimate(v, target);
+	}
+
+	private double priority(int v) {
+		switch (priority) {
+		case DISCOVERY:
+			return numDiscovered++;
+		case COST:
+			return cost[v];
+		case COST_AND_ESTIMATE:
+			return cost[v] + fnEstimate.estimate(v, target);
+		case ESTIMATE:
+			return fnEstimate.estimate(v, target);
+		default:
+			throw new IllegalStateException("Unknown priority: " + priority);
+		}
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		int current = open.poll();
+		if (state[current] == COMPLETED) {
+			return false; // outdated queue entry
+		}
+		fireVertexRemovedFromFrontier(current);
+		setState(current, COMPLETED);
+		if (current == target) {
+			return true;
+		}
+		int col = col(current), row = row(current);
+		for (int dy = -1; dy <= 1; ++dy) {
+			for (int dx = -1; dx <= 1; ++dx) {
+				if ((dx == 0 && dy == 0) || !canMove(col, row, dx, dy)) {
+					continue;
+				}
+				int neighbor = cell(col + dx, row + dy);
+				if (state[neighbor] == COMPLETED || (!priority.updatesCost() && state[neighbor] != UNVISITED)) {
+					continue;
+				}
+				double newCost = cost[current] + lineCost(dx, dy);
+				if (newCost < cost[neighbor]) {
+					cost[neighbor] = newCost;
+					parent[neighbor] = current;
+					if (state[neighbor] == UNVISITED) {
+						setState(neighbor, VISITED);
+						fireVertexAddedToFrontier(neighbor);
+					}
+					fireEdgeTraversed(current, neighbor);
+					open.add(neighbor, priority(neighbor));
+				}
+			}
+		}
+		discardCompleted();
+		return false;
+	}
+}
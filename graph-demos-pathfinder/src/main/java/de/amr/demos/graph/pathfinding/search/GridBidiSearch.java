@@ -0,0 +1,268 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.Arrays;
+
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.demos.graph.pathfinding.search.GridBestFirstSearch.Priority;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Bidirectional breadth-first, Dijkstra or A* search with the search state in primitive arrays. The
+ * forward search from the source uses the arrays of the base class, the backward search from the
+ * target has its own arrays and open list. The searches expand in turns.
+ * <p>
+ * Breadth-first search stops when the searches meet. Dijkstra and A* keep the cheapest connection
+ * found so far and stop when no cheaper one is possible: for Dijkstra when the smallest keys of both
+ * open lists add up to at least its cost, for A* (with consistent estimates) when the smallest key of
+ * one open list reaches its cost. The path is then joined such that {@link #buildPath(int)} and
+ * {@link #getCost(int)} of the target refer to the complete path.
+ *
+ * @author Armin Reichert
+ */
+public class GridBidiSearch extends AbstractGridSearch {
+
+	private final Priority priority;
+	private final CellEstimate fnEstimate;
+	private final VertexQueue openBackward = new VertexQueue();
+	private int[] parentBackward;
+	private double[] costBackward;
+	private byte[] stateBackward;
+	private boolean forwardTurn;
+	private long numDiscovered;
+	private int meetingPoint;
+	private double meetingCost;
+
+	/**
+	 * @param map        map
+	 * @param priority   priority of the open lists, {@link Priority#ESTIMATE} is not supported
+	 * @param fnEstimate estimated cost between two cells, needed for {@link Priority#COST_AND_ESTIMATE}
+	 */
+	public GridBidiSearch(GridGraph2D<Tile, ?> map, Priority priority, CellEstimate fnEstimate) {
+		super(map);
+		if (priority == Priority.ESTIMATE) {
+			throw new IllegalArgumentException("Priority " + priority + " not supported by bidirectional search");
+		}
+		if (priority == Priority.COST_AND_ESTIMATE && fnEstimate == null) {
+			throw new IllegalArgumentException("Priority " + priority + " needs an estimate function");
+		}
+		this.priority = priority;
+		this.fnEstimate = fnEstimate;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return if the search uses the estimate function
+	 */
+	public boolean isInformed() {
+		return fnEstimate != null;
+	}
+
+	/**
+	 * @return cell where the forward and backward path of the cheapest connection found so far meet or
+	 *         {@link de.amr.graph.core.api.Graph#NO_VERTEX}
+	 */
+	public int getMeetingPoint() {
+		return meetingPoint;
+	}
+
+	@Override
+	public void start(int source, int target) {
+		super.start(source, target);
+		int numCells = map.numVertices();
+		if (parentBackward == null || parentBackward.length != numCells) {
+			parentBackward = new int[numCells];
+			costBackward = new double[numCells];
+			stateBackward = new byte[numCells];
+		}
+		Arrays.fill(parentBackward, NO_VERTEX);
+		Arrays.fill(costBackward, Path.INFINITE_COST);
+		Arrays.fill(stateBackward, UNVISITED);
+		openBackward.clear();
+		forwardTurn = false;
+		numDiscovered = 0;
+		meetingPoint = source == target ? source : NO_VERTEX;
+		meetingCost = source == target ? 0 : Path.INFINITE_COST;
+		cost[source] = 0;
+		setState(true, source, VISITED);
+		open.add(source, priority(true, source));
+		fireVertexAddedToFrontier(source);
+		costBackward[target] = 0;
+		setState(false, target, VISITED);
+		openBackward.add(target, priority(false, target));
+		fireVertexAddedToFrontier(target);
+	}
+
+	@Override
+	public boolean canExplore() {
+		return meetingPoint != NO_VERTEX || !open.isEmpty() && !openBackward.isEmpty();
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		if (meetingPoint == NO_VERTEX || !isConnectionOptimal()) {
+			forwardTurn = !forwardTurn;
+			if (forwardTurn ? open.isEmpty() : openBackward.isEmpty()) {
+				forwardTurn = !forwardTurn;
+			}
+			expand(forwardTurn);
+			if (meetingPoint == NO_VERTEX || !isConnectionOptimal()) {
+				return false;
+			}
+		}
+		joinPaths();
+		return true;
+	}
+
+	/*
+	 * Breadth-first search takes the first connection, the others stop if no cheaper connection can
+	 * be found.
+	 */
+	private boolean isConnectionOptimal() {
+		if (priority == Priority.DISCOVERY || open.isEmpty() || openBackward.isEmpty()) {
+			return true;
+		}
+		if (priority == Priority.COST) {
+			return open.peekKey() + openBackward.peekKey() >= meetingCost;
+		}
+		return open.peekKey() >= meetingCost || openBackward.peekKey() >= meetingCost;
+	}
+
+	private void expand(boolean forward) {
+		VertexQueue queue = forward ? open : openBackward;
+		int[] parents = forward ? parent : parentBackward;
+		double[] costs = forward ? cost : costBackward;
+		byte[] states = forward ? state : stateBackward;
+		double[] otherCosts = forward ? costBackward : cost;
+		int current = queue.poll();
+		if (states[current] != COMPLETED) {
+			fireVertexRemovedFromFrontier(current);
+			setState(forward, current, COMPLETED);
+			int col = col(current), row = row(current);
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if ((dx == 0 && dy == 0) || !canMove(col, row, dx, dy)) {
+						continue;
+					}
+					int neighbor = cell(col + dx, row + dy);
+					if (states[neighbor] == COMPLETED || (!priority.updatesCost() && states[neighbor] != UNVISITED)) {
+						continue;
+					}
+					double newCost = costs[current] + lineCost(dx, dy);
+					if (newCost >= costs[neighbor]) {
+						continue;
+					}
+					costs[neighbor] = newCost;
+					parents[neighbor] = current;
+					if (states[neighbor] == UNVISITED) {
+						setState(forward, neighbor, VISITED);
+						fireVertexAddedToFrontier(neighbor);
+					}
+					fireEdgeTraversed(current, neighbor);
+					queue.add(neighbor, priority(forward, neighbor));
+					if (otherCosts[neighbor] != Path.INFINITE_COST && newCost + otherCosts[neighbor] < meetingCost) {
+						meetingCost = newCost + otherCosts[neighbor];
+						meetingPoint = neighbor;
+					}
+				}
+			}
+		}
+		while (!queue.isEmpty() && states[queue.peek()] == COMPLETED) {
+			queue.poll();
+		}
+	}
+
+	private double priority(boolean forward, int v) {
+		switch (priority) {
+		case DISCOVERY:
+			return numDiscovered++;
+		case COST:
+			return forward ? cost[v] : costBackward[v];
+		case COST_AND_ESTIMATE:
+			return forward ? cost[v] + fnEstimate.estimate(v, target) : costBackward[v] + fnEstimate.estimate(v, source);
+		default:
+			throw new IllegalStateException("Unknown priority: " + priority);
+		}
+	}
+
+	/*
+	 * Changes the state of a cell in one direction, the observers see the combined state.
+	 */
+	private void setState(boolean forward, int v, byte newState) {
+		byte oldCombined = combinedState(v);
+		if (forward) {
+			state[v] = newState;
+		} else {
+			stateBackward[v] = newState;
+		}
+		byte newCombined = combinedState(v);
+		if (oldCombined != newCombined) {
+			fireVertexStateChanged(v, oldCombined, newCombined);
+		}
+	}
+
+	private byte combinedState(int v) {
+		return (byte) Math.max(state[v], stateBackward[v]);
+	}
+
+	/*
+	 * Continues the forward path from the meeting point with the backward path to the target. The
+	 * backward path does not contain a cell of the forward path to the meeting point, else that cell
+	 * would be a cheaper meeting point.
+	 */
+	private void joinPaths() {
+		for (int v = meetingPoint; v != target; v = parentBackward[v]) {
+			int next = parentBackward[v];
+			parent[next] = v;
+			cost[next] = cost[v] + lineCost(col(next) - col(v), row(next) - row(v));
+		}
+	}
+
+	@Override
+	public TraversalState getState(int v) {
+		if (stateBackward == null) {
+			return super.getState(v);
+		}
+		TraversalState forwardState = super.getState(v);
+		switch (stateBackward[v]) {
+		case COMPLETED:
+			return TraversalState.COMPLETED;
+		case VISITED:
+			return forwardState == TraversalState.COMPLETED ? forwardState : TraversalState.VISITED;
+		default:
+			return forwardState;
+		}
+	}
+
+	@Override
+	public int getParent(int v) {
+		if (parent == null || parent[v] != NO_VERTEX || v == source) {
+			return super.getParent(v);
+		}
+		return parentBackward[v];
+	}
+
+	@Override
+	public double getCost(int v) {
+		if (cost == null || cost[v] != Path.INFINITE_COST) {
+			return super.getCost(v);
+		}
+		return costBackward[v];
+	}
+
+	@Override
+	public double getEstimatedCostToTarget(int v) {
+		return fnEstimate == null || target == NO_VERTEX ? 0 : fnEstimate.estimate(v, target);
+	}
+
+	@Override
+	public long getStateSizeBytes() {
+		return 2 * super.getStateSizeBytes();
+	}
+}
@@ -0,0 +1,158 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.demos.graph.pathfinding.search.ClusterAbstraction.Cluster;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Hierarchical A* (HPA*) using a {@link ClusterAbstraction}.
+ * <p>
+ * Source and target are connected to the abstract nodes of their clusters, then A* runs on the
+ * abstract graph. Each exploration step expands one abstract node. When the target is found, the
+ * abstract path is refined into a cell path by searches inside the clusters it passes. Paths are
+ * near-optimal: they are restricted to pass the clusters through the abstract nodes.
+ *
+ * @author Armin Reichert
+ */
+public class HierarchicalSearch extends AbstractGridSearch {
+
+	private final ClusterAbstraction abstraction;
+	private double[] sourceDistances;
+	private double[] targetDistances;
+	private int targetCluster;
+
+	public HierarchicalSearch(GridGraph2D<Tile, ?> map, ClusterAbstraction abstraction) {
+		super(map);
+		this.abstraction = abstraction;
+	}
+
+	public ClusterAbstraction getAbstraction() {
+		return abstraction;
+	}
+
+	@Override
+	public float getPreprocessingTimeMillis() {
+		return abstraction.getBuildTimeMillis();
+	}
+
+	@Override
+	public void start(int source, int target) {
+		super.start(source, target);
+		targetCluster = abstraction.clusterOf(target);
+		sourceDistances = abstraction.localDistances(source);
+		targetDistances = abstraction.localDistances(target);
+		cost[source] = 0;
+		setState(source, VISITED);
+		open.add(source, getEstimatedCostToTarget(source));
+		fireVertexAddedToFrontier(source);
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		int current = open.poll();
+		if (state[current] == COMPLETED) {
+			return false; // outdated queue entry
+		}
+		fireVertexRemovedFromFrontier(current);
+		setState(current, COMPLETED);
+		if (current == target) {
+			refinePath();
+			return true;
+		}
+		int k = abstraction.clusterOf(current);
+		Cluster cluster = abstraction.cluster(k);
+		if (current == source) {
+			for (int node : cluster.nodes) {
+				relax(current, node, sourceDistances[abstraction.localIndex(k, node)]);
+			}
+		}
+		if (k == targetCluster) {
+			relax(current, target, targetDistances[abstraction.localIndex(k, current)]);
+		}
+		int i = cluster.nodeIndex(current);
+		if (i >= 0) {
+			int n = cluster.nodes.length;
+			for (int j = 0; j < n; ++j) {
+				relax(current, cluster.nodes[j], cluster.distances[i * n + j]);
+			}
+			for (int t = 0; t < cluster.transitionFrom.length; ++t) {
+				if (cluster.transitionFrom[t] == current) {
+					relax(current, cluster.transitionTo[t], cluster.transitionCost[t]);
+				}
+			}
+		}
+		discardCompleted();
+		return false;
+	}
+
+	private void relax(int u, int v, double edgeCost) {
+		if (u == v || edgeCost == Path.INFINITE_COST || state[v] == COMPLETED) {
+			return;
+		}
+		double newCost = cost[u] + edgeCost;
+		if (newCost < cost[v]) {
+			cost[v] = newCost;
+			parent[v] = u;
+			if (state[v] == UNVISITED) {
+				setState(v, VISITED);
+				fireVertexAddedToFrontier(v);
+			}
+			open.add(v, newCost + getEstimatedCostToTarget(v));
+		}
+	}
+
+	/*
+	 * Replaces the abstract path by the cell path and stores it in the parent and cost arrays.
+	 */
+	private void refinePath() {
+		int numAbstract = 1;
+		for (int v = target; v != source; v = parent[v]) {
+			++numAbstract;
+		}
+		int[] abstractPath = new int[numAbstract];
+		for (int v = target, i = numAbstract - 1; i >= 0; v = parent[v], --i) {
+			abstractPath[i] = v;
+		}
+		int[] cells = new int[16];
+		int size = 0;
+		cells[size++] = source;
+		for (int i = 1; i < abstractPath.length; ++i) {
+			int u = abstractPath[i - 1], v = abstractPath[i];
+			int[] segment = abstraction.clusterOf(u) != abstraction.clusterOf(v) ? new int[] { u, v }
+					: abstraction.localPath(u, v);
+			for (int j = 1; j < segment.length; ++j) {
+				if (size == cells.length) {
+					cells = Arrays.copyOf(cells, 2 * size);
+				}
+				cells[size++] = segment[j];
+			}
+		}
+		// segments may touch each other if there are equally short alternatives, cut such loops
+		BitSet onPath = new BitSet();
+		int length = 0;
+		for (int i = 0; i < size; ++i) {
+			int cell = cells[i];
+			if (onPath.get(cell)) {
+				while (cells[length - 1] != cell) {
+					onPath.clear(cells[--length]);
+				}
+			} else {
+				onPath.set(cell);
+				cells[length++] = cell;
+			}
+		}
+		parent[source] = NO_VERTEX;
+		cost[source] = 0;
+		for (int i = 1; i < length; ++i) {
+			int u = cells[i - 1], v = cells[i];
+			parent[v] = u;
+			cost[v] = cost[u] + lineCost(col(v) - col(u), row(v) - row(u));
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Jump Point Search (Harabor and Grastien, 2011) on uniform-cost grid maps.
+ * <p>
+ * Like A*, but only "jump points" enter the open list: straight and diagonal runs without forced
+ * neighbors are skipped. On 8-neighbor maps diagonal moves may cut corners, as in the grid graph
+ * used by the other path finders. On 4-neighbor maps the 4-connected variant of the pruning rules
+ * is used.
+ * <p>
+ * If a {@link JumpTable} is given (8-neighbor maps only), straight jumps are looked up instead of
+ * scanned ("JPS+").
+ * <p>
+ * When the target is found, the cells between consecutive jump points get their parent and cost
+ * such that {@link #buildPath(int)} returns the complete cell path.
+ *
+ * @author Armin Reichert
+ */
+public class JumpPointSearch extends AbstractGridSearch {
+
+	private final JumpTable jumpTable;
+	private final int[] successorDX = new int[8];
+	private final int[] successorDY = new int[8];
+	private int numSuccessorDirs;
+
+	public JumpPointSearch(GridGraph2D<Tile, ?> map) {
+		this(map, null);
+	}
+
+	public JumpPointSearch(GridGraph2D<Tile, ?> map, JumpTable jumpTable) {
+		super(map);
+		this.jumpTable = diagonal ? jumpTable : null;
+	}
+
+	public boolean isUsingJumpTable() {
+		return jumpTable != null;
+	}
+
+	@Override
+	public float getPreprocessingTimeMillis() {
+		return jumpTable != null ? jumpTable.getBuildTimeMillis() : 0;
+	}
+
+	/**
+	 * @return size of the search state including the jump table, if any
+	 */
+	@Override
+	public long getStateSizeBytes() {
+		return super.getStateSizeBytes() + (jumpTable != null ? jumpTable.sizeBytes() : 0);
+	}
+
+	@Override
+	public void start(int source, int target) {
+		super.start(source, target);
+		cost[source] = 0;
+		setState(source, VISITED);
+		open.add(source, getEstimatedCostToTarget(source));
+		fireVertexAddedToFrontier(source);
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		int current = open.poll();
+		if (state[current] == COMPLETED) {
+			return false; // outdated queue entry
+		}
+		fireVertexRemovedFromFrontier(current);
+		setState(current, COMPLETED);
+		if (current == target) {
+			fillPathGaps();
+			return true;
+		}
+		int col = col(current), row = row(current);
+		computeSuccessorDirs(current, col, row);
+		for (int i = 0; i < numSuccessorDirs; ++i) {
+			int jumpPoint = diagonal ? jump8(col, row, successorDX[i], successorDY[i])
+					: jump4(col, row, successorDX[i], successorDY[i]);
+			if (jumpPoint == NO_VERTEX || state[jumpPoint] == COMPLETED) {
+				continue;
+			}
+			double newCost = cost[current] + lineCost(col(jumpPoint) - col, row(jumpPoint) - row);
+			if (newCost < cost[jumpPoint]) {
+				cost[jumpPoint] = newCost;
+				parent[jumpPoint] = current;
+				if (state[jumpPoint] == UNVISITED) {
+					setState(jumpPoint, VISITED);
+					fireVertexAddedToFrontier(jumpPoint);
+				}
+				open.add(jumpPoint, newCost + getEstimatedCostToTarget(jumpPoint));
+			}
+		}
+		discardCompleted();
+		return false;
+	}
+
+	private void addSuccessorDir(int dx, int dy) {
+		successorDX[numSuccessorDirs] = dx;
+		successorDY[numSuccessorDirs] = dy;
+		++numSuccessorDirs;
+	}
+
+	/*
+	 * Computes the directions of the natural and forced neighbors of the cell when reached from its
+	 * parent. The source has all neighbors as successors.
+	 */
+	private void computeSuccessorDirs(int current, int col, int row) {
+		numSuccessorDirs = 0;
+		if (parent[current] == NO_VERTEX) {
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if ((dx != 0 || dy != 0) && (diagonal || dx == 0 || dy == 0)) {
+						addSuccessorDir(dx, dy);
+					}
+				}
+			}
+			return;
+		}
+		int dx = Integer.signum(col - col(parent[current])), dy = Integer.signum(row - row(parent[current]));
+		if (!diagonal) {
+			if (dx != 0) {
+				addSuccessorDir(0, -1);
+				addSuccessorDir(0, 1);
+				addSuccessorDir(dx, 0);
+			} else {
+				addSuccessorDir(-1, 0);
+				addSuccessorDir(1, 0);
+				addSuccessorDir(0, dy);
+			}
+		} else if (dx != 0 && dy != 0) {
+			addSuccessorDir(0, dy);
+			addSuccessorDir(dx, 0);
+			addSuccessorDir(dx, dy);
+			if (!isFree(col - dx, row)) {
+				addSuccessorDir(-dx, dy);
+			}
+			if (!isFree(col, row - dy)) {
+				addSuccessorDir(dx, -dy);
+			}
+		} else if (dx != 0) {
+			addSuccessorDir(dx, 0);
+			if (!isFree(col, row + 1)) {
+				addSuccessorDir(dx, 1);
+			}
+			if (!isFree(col, row - 1)) {
+				addSuccessorDir(dx, -1);
+			}
+		} else {
+			addSuccessorDir(0, dy);
+			if (!isFree(col + 1, row)) {
+				addSuccessorDir(1, dy);
+			}
+			if (!isFree(col - 1, row)) {
+				addSuccessorDir(-1, dy);
+			}
+		}
+	}
+
+	private int jump8(int col, int row, int dx, int dy) {
+		if (dx == 0 || dy == 0) {
+			return jumpStraight8(col, row, dx, dy);
+		}
+		while (true) {
+			col += dx;
+			row += dy;
+			if (!isFree(col, row)) {
+				return NO_VERTEX;
+			}
+			int cell = cell(col, row);
+			if (cell == target) {
+				return cell;
+			}
+			if ((isFree(col - dx, row + dy) && !isFree(col - dx, row))
+					|| (isFree(col + dx, row - dy) && !isFree(col, row - dy))) {
+				return cell;
+			}
+			if (jumpStraight8(col, row, dx, 0) != NO_VERTEX || jumpStraight8(col, row, 0, dy) != NO_VERTEX) {
+				return cell;
+			}
+		}
+	}
+
+	private int jumpStraight8(int col, int row, int dx, int dy) {
+		if (jumpTable != null) {
+			int distance = jumpTable.get(cell(col, row), dx, dy);
+			int freeSteps = Math.abs(distance);
+			int targetCol = col(target), targetRow = row(target);
+			if (dx != 0 && targetRow == row && Integer.signum(targetCol - col) == dx
+					&& Math.abs(targetCol - col) <= freeSteps) {
+				return target;
+			}
+			if (dy != 0 && targetCol == col && Integer.signum(targetRow - row) == dy
+					&& Math.abs(targetRow - row) <= freeSteps) {
+				return target;
+			}
+			return distance > 0 ? cell(col + dx * distance, row + dy * distance) : NO_VERTEX;
+		}
+		while (true) {
+			col += dx;
+			row += dy;
+			if (!isFree(col, row)) {
+				return NO_VERTEX;
+			}
+			int cell = cell(col, row);
+			if (cell == target) {
+				return cell;
+			}
+			if (dx != 0) {
+				if ((isFree(col + dx, row + 1) && !isFree(col, row + 1))
+						|| (isFree(col + dx, row - 1) && !isFree(col, row - 1))) {
+					return cell;
+				}
+			} else {
+				if ((isFree(col + 1, row + dy) && !isFree(col + 1, row))
+						|| (isFree(col - 1, row + dy) && !isFree(col - 1, row))) {
+					return cell;
+				}
+			}
+		}
+	}
+
+	private int jump4(int col, int row, int dx, int dy) {
+		while (true) {
+			col += dx;
+			row += dy;
+			if (!isFree(col, row)) {
+				return NO_VERTEX;
+			}
+			int cell = cell(col, row);
+			if (cell == target) {
+				return cell;
+			}
+			if (dx != 0) {
+				if ((isFree(col, row - 1) && !isFree(col - dx, row - 1))
+						|| (isFree(col, row + 1) && !isFree(col - dx, row + 1))) {
+					return cell;
+				}
+			} else {
+				if ((isFree(col - 1, row) && !isFree(col - 1, row - dy))
+						|| (isFree(col + 1, row) && !isFree(col + 1, row - dy))) {
+					return cell;
+				}
+				// vertical jumps stop where a horizontal jump finds something
+				if (jump4(col, row, 1, 0) != NO_VERTEX || jump4(col, row, -1, 0) != NO_VERTEX) {
+					return cell;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Sets parent and cost of the cells between consecutive jump points on the path to the target.
+	 */
+	private void fillPathGaps() {
+		int v = target;
+		while (parent[v] != NO_VERTEX) {
+			int p = parent[v];
+			int dx = Integer.signum(col(p) - col(v)), dy = Integer.signum(row(p) - row(v));
+			double stepCost = lineCost(dx, dy);
+			int child = v, col = col(v) + dx, row = row(v) + dy;
+			while (col != col(p) || row != row(p)) {
+				int cell = cell(col, row);
+				parent[child] = cell;
+				cost[cell] = cost[child] - stepCost;
+				child = cell;
+				col += dx;
+				row += dy;
+			}
+			parent[child] = p;
+			v = p;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import java.util.BitSet;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.MapChangeListener;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Precomputed straight jumps for Jump Point Search on 8-neighbor maps ("JPS+").
+ * <p>
+ * For each cell and each straight direction the table stores where a straight jump starting at that
+ * cell ends, ignoring the target: a positive value {@code d} means the jump reaches a jump point
+ * after {@code d} steps, a value {@code -d <= 0} means the jump runs into a wall or the map border
+ * after {@code d} free steps. Values fit into a {@code short} because maps have at most
+ * {@value de.amr.demos.graph.pathfinding.model.PathFinderModel#MAX_MAP_SIZE} cells per side.
+ * <p>
+ * Whether a cell is a jump point for a horizontal jump only depends on the row of the cell and its
+ * neighbor rows (same for vertical jumps and columns), so a changed cell only requires recomputing
+ * three rows and three columns.
+ *
+ * @author Armin Reichert
+ */
+public class JumpTable implements MapChangeListener {
+
+	// directions E, W, S, N
+	private static final int[] DX = { 1, -1, 0, 0 };
+	private static final int[] DY = { 0, 0, 1, -1 };
+
+	private final GridGraph2D<Tile, ?> map;
+	private final CompactGridMap compactMap;
+	private final int numCols;
+	private final int numRows;
+	private final short[] jumps;
+	private final float buildTimeMillis;
+
+	public JumpTable(GridGraph2D<Tile, ?> map) {
+		if (map.getTopology().dirCount() != 8) {
+			throw new IllegalArgumentException("Jump table requires 8-neighbor topology");
+		}
+		this.map = map;
+		this.compactMap = map instanceof CompactGridMap compact ? compact : null;
+		this.numCols = map.numCols();
+		this.numRows = map.numRows();
+		long start = System.nanoTime();
+		jumps = new short[4 * numCols * numRows];
+		for (int row = 0; row < numRows; ++row) {
+			computeRow(row);
+		}
+		for (int col = 0; col < numCols; ++col) {
+			computeCol(col);
+		}
+		buildTimeMillis = (System.nanoTime() - start) / 1_000_000f;
+	}
+
+	public float getBuildTimeMillis() {
+		return buildTimeMillis;
+	}
+
+	/**
+	 * Updates the table after the content of the given cell has changed.
+	 *
+	 * @param cell changed cell
+	 */
+	@Override
+	public void cellChanged(int cell) {
+		int col = cell % numCols, row = cell / numCols;
+		for (int r = Math.max(0, row - 1); r <= Math.min(numRows - 1, row + 1); ++r) {
+			computeRow(r);
+		}
+		for (int c = Math.max(0, col - 1); c <= Math.min(numCols - 1, col + 1); ++c) {
+			computeCol(c);
+		}
+	}
+
+	/**
+	 * Updates the table after the content of several cells has changed. Each affected row and column is
+	 * recomputed once.
+	 *
+	 * @param cells changed cells
+	 */
+	@Override
+	public void cellsChanged(int[] cells) {
+		BitSet rows = new BitSet(numRows), cols = new BitSet(numCols);
+		for (int cell : cells) {
+			int col = cell % numCols, row = cell / numCols;
+			rows.set(Math.max(0, row - 1), Math.min(numRows, row + 2));
+			cols.set(Math.max(0, col - 1), Math.min(numCols, col + 2));
+		}
+		rows.stream().forEach(this::computeRow);
+		cols.stream().forEach(this::computeCol);
+	}
+
+	/**
+	 * @param cell start cell of straight jump
+	 * @param dx   horizontal direction (-1, 0, 1)
+	 * @param dy   vertical direction (-1, 0, 1), exactly one of {@code dx, dy} must be non-zero
+	 * @return jump distance as described in the class comment
+	 */
+	public int get(int cell, int dx, int dy) {
+		return jumps[4 * cell + dirIndex(dx, dy)];
+	}
+
+	/**
+	 * @return number of bytes used by the table
+	 */
+	public long sizeBytes() {
+		return 2L * jumps.length;
+	}
+
+	/**
+	 * @param numCells number of map cells
+	 * @return number of bytes used by a table for a map with the given number of cells
+	 */
+	public static long sizeBytes(int numCells) {
+		return 8L * numCells;
+	}
+
+	private static int dirIndex(int dx, int dy) {
+		return dx == 1 ? 0 : dx == -1 ? 1 : dy == 1 ? 2 : 3;
+	}
+
+	private boolean isFree(int col, int row) {
+		if (col < 0 || col >= numCols || row < 0 || row >= numRows) {
+			return false;
+		}
+		int cell = row * numCols + col;
+		return compactMap != null ? !compactMap.isWall(cell) : map.get(cell) != Tile.WALL;
+	}
+
+	private void computeRow(int row) {
+		for (int d = 0; d < 2; ++d) {
+			int dx = DX[d];
+			int col = dx == 1 ? numCols - 1 : 0;
+			for (int i = 0; i < numCols; ++i, col -= dx) {
+				int nextCol = col + dx;
+				int distance;
+				if (!isFree(nextCol, row)) {
+					distance = 0;
+				} else if ((isFree(nextCol + dx, row + 1) && !isFree(nextCol, row + 1))
+						|| (isFree(nextCol + dx, row - 1) && !isFree(nextCol, row - 1))) {
+					distance = 1;
+				} else {
+					int next = jumps[4 * (row * numCols + nextCol) + d];
+					distance = next > 0 ? next + 1 : next - 1;
+				}
+				jumps[4 * (row * numCols + col) + d] = (short) distance;
+			}
+		}
+	}
+
+	private void computeCol(int col) {
+		for (int d = 2; d < 4; ++d) {
+			int dy = DY[d];
+			int row = dy == 1 ? numRows - 1 : 0;
+			for (int i = 0; i < numRows; ++i, row -= dy) {
+				int nextRow = row + dy;
+				int distance;
+				if (!isFree(col, nextRow)) {
+					distance = 0;
+				} else if ((isFree(col + 1, nextRow + dy) && !isFree(col + 1, nextRow))
+						|| (isFree(col - 1, nextRow + dy) && !isFree(col - 1, nextRow))) {
+					distance = 1;
+				} else {
+					int next = jumps[4 * (nextRow * numCols + col) + d];
+					distance = next > 0 ? next + 1 : next - 1;
+				}
+				jumps[4 * (row * numCols + col) + d] = (short) distance;
+			}
+		}
+	}
+}
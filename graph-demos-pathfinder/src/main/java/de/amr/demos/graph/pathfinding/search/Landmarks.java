@@ -0,0 +1,343 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import de.amr.demos.graph.pathfinding.model.CompactGridMap;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Landmark distances for the ALT heuristic (A*, landmarks, triangle inequality; Goldberg and
+ * Harrelson, 2005).
+ * <p>
+ * For each landmark {@code L} the distances {@code d(L, v)} to all cells are precomputed by a full
+ * Dijkstra search. By the triangle inequality, {@code |d(L, t) - d(L, v)|} is a lower bound of the
+ * distance between {@code v} and {@code t}. The estimate is the maximum of these bounds over all
+ * landmarks and the straight-line distance. Around walls it is much closer to the true distance
+ * than the straight-line distance alone.
+ * <p>
+ * Distances are stored as {@code float} to halve the memory. The open list of the Dijkstra search
+ * keeps the exact {@code double} distances, so each stored distance is rounded only once and the
+ * estimate is reduced by the rounding error, so it stays admissible.
+ *
+ * @author Armin Reichert
+ */
+public class Landmarks {
+
+	public static final int DEFAULT_COUNT = 8;
+
+	/**
+	 * Landmark selection strategies.
+	 */
+	public enum Selection {
+		/** Free cells next to points evenly spread along the map border, trees computed in parallel. */
+		PERIMETER,
+		/** Each landmark is the cell farthest from the landmarks chosen before, trees computed in sequence. */
+		FARTHEST,
+		/** Random free cells (fixed seed), trees computed in parallel. */
+		RANDOM;
+
+		@Override
+		public String toString() {
+			switch (this) {
+			case PERIMETER:
+				return "Perimeter";
+			case FARTHEST:
+				return "Farthest";
+			case RANDOM:
+				return "Random";
+			default:
+				return "";
+			}
+		}
+	}
+
+	private static final double SQRT2 = Math.sqrt(2);
+	private static final long RANDOM_SEED = 42;
+
+	private final GridGraph2D<Tile, ?> map;
+	private final CompactGridMap compactMap;
+	private final int numCols;
+	private final int numRows;
+	private final boolean diagonal;
+	private final Selection selection;
+	private final int[] landmarks;
+	private final float[][] distances;
+	private final double roundingError;
+	private final float buildTimeMillis;
+
+	/**
+	 * Selects the landmarks and computes their distance trees.
+	 *
+	 * @param map       map
+	 * @param selection landmark selection strategy
+	 * @param count     maximum number of landmarks, fewer are used if the map has not enough free
+	 *                  cells
+	 */
+	public Landmarks(GridGraph2D<Tile, ?> map, Selection selection, int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Illegal landmark count: " + count);
+		}
+		long start = System.nanoTime();
+		this.map = map;
+		this.compactMap = map instanceof CompactGridMap compact ? compact : null;
+		this.numCols = map.numCols();
+		this.numRows = map.numRows();
+		this.diagonal = map.getTopology().dirCount() == 8;
+		this.selection = selection;
+		switch (selection) {
+		case PERIMETER:
+			landmarks = selectOnPerimeter(count);
+			distances = computeTrees(landmarks);
+			break;
+		case FARTHEST:
+			int[] cells = new int[count];
+			distances = selectFarthest(cells);
+			landmarks = Arrays.copyOf(cells, distances.length);
+			break;
+		case RANDOM:
+			landmarks = selectRandom(count);
+			distances = computeTrees(landmarks);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown landmark selection: " + selection);
+		}
+		float maxDistance = 0;
+		for (float[] tree : distances) {
+			for (float d : tree) {
+				if (d != Float.POSITIVE_INFINITY && d > maxDistance) {
+					maxDistance = d;
+				}
+			}
+		}
+		// each stored distance is off by at most half an ulp
+		roundingError = Math.ulp(maxDistance);
+		buildTimeMillis = (System.nanoTime() - start) / 1_000_000f;
+	}
+
+	public Selection getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @return the landmark cells
+	 */
+	public int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	public int numLandmarks() {
+		return landmarks.length;
+	}
+
+	public float getBuildTimeMillis() {
+		return buildTimeMillis;
+	}
+
+	/**
+	 * @return number of bytes used by the distance arrays
+	 */
+	public long sizeBytes() {
+		return sizeBytes(landmarks.length, numCols * numRows);
+	}
+
+	/**
+	 * @param count    number of landmarks
+	 * @param numCells number of map cells
+	 * @return number of bytes used by the distance arrays of the given number of landmarks
+	 */
+	public static long sizeBytes(int count, int numCells) {
+		return 4L * count * numCells;
+	}
+
+	/**
+	 * @param v vertex
+	 * @param t target vertex
+	 * @return admissible estimate of the distance between {@code v} and {@code t}
+	 */
+	public double estimate(int v, int t) {
+		int dx = Math.abs(v % numCols - t % numCols), dy = Math.abs(v / numCols - t / numCols);
+		double best = Math.sqrt(dx * dx + dy * dy);
+		for (float[] tree : distances) {
+			float dv = tree[v], dt = tree[t];
+			if (dv != Float.POSITIVE_INFINITY && dt != Float.POSITIVE_INFINITY) {
+				double bound = Math.abs((double) dt - dv) - roundingError;
+				if (bound > best) {
+					best = bound;
+				}
+			}
+		}
+		return best;
+	}
+
+	// selection
+
+	private int[] selectOnPerimeter(int count) {
+		int perimeter = 2 * (numCols - 1) + 2 * (numRows - 1);
+		int[] cells = new int[count];
+		int n = 0;
+		for (int i = 0; i < count; ++i) {
+			int pos = (int) ((long) i * perimeter / count);
+			int col, row;
+			if (pos < numCols - 1) {
+				col = pos;
+				row = 0;
+			} else if ((pos -= numCols - 1) < numRows - 1) {
+				col = numCols - 1;
+				row = pos;
+			} else if ((pos -= numRows - 1) < numCols - 1) {
+				col = numCols - 1 - pos;
+				row = numRows - 1;
+			} else {
+				col = 0;
+				row = numRows - 1 - (pos - (numCols - 1));
+			}
+			int cell = nearestFreeCell(col, row);
+			if (cell != -1 && !contains(cells, n, cell)) {
+				cells[n++] = cell;
+			}
+		}
+		return Arrays.copyOf(cells, n);
+	}
+
+	private int[] selectRandom(int count) {
+		int[] freeCells = IntStream.range(0, numCols * numRows).filter(this::isFree).toArray();
+		Random rnd = new Random(RANDOM_SEED);
+		int n = Math.min(count, freeCells.length);
+		// partial Fisher-Yates shuffle
+		for (int i = 0; i < n; ++i) {
+			int j = i + rnd.nextInt(freeCells.length - i);
+			int tmp = freeCells[i];
+			freeCells[i] = freeCells[j];
+			freeCells[j] = tmp;
+		}
+		return Arrays.copyOf(freeCells, n);
+	}
+
+	/*
+	 * Starts at the free cell nearest to the map center, the first landmark is the cell farthest from
+	 * it. Each further landmark maximizes the distance to its nearest landmark chosen before. Only
+	 * cells reachable from the first landmark are considered. Stores the landmarks in the given array
+	 * and returns their trees.
+	 */
+	private float[][] selectFarthest(int[] cells) {
+		int count = cells.length;
+		float[][] trees = new float[count][];
+		int center = nearestFreeCell(numCols / 2, numRows / 2);
+		if (center == -1) {
+			return new float[0][];
+		}
+		int next = argMax(computeTree(center));
+		float[] minDistance = null;
+		int n = 0;
+		while (n < count && next != -1) {
+			cells[n] = next;
+			trees[n] = computeTree(next);
+			if (minDistance == null) {
+				minDistance = trees[n].clone();
+			} else {
+				for (int v = 0; v < minDistance.length; ++v) {
+					minDistance[v] = Math.min(minDistance[v], trees[n][v]);
+				}
+			}
+			++n;
+			next = argMax(minDistance);
+			if (next != -1 && minDistance[next] == 0) {
+				next = -1; // all reachable cells are landmarks
+			}
+		}
+		return Arrays.copyOf(trees, n);
+	}
+
+	private static int argMax(float[] distances) {
+		int best = -1;
+		for (int v = 0; v < distances.length; ++v) {
+			if (distances[v] != Float.POSITIVE_INFINITY && (best == -1 || distances[v] > distances[best])) {
+				best = v;
+			}
+		}
+		return best;
+	}
+
+	private static boolean contains(int[] cells, int n, int cell) {
+		for (int i = 0; i < n; ++i) {
+			if (cells[i] == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Searches the free cell nearest to the given position (in squares of growing size).
+	 */
+	private int nearestFreeCell(int col, int row) {
+		int maxRadius = Math.max(numCols, numRows);
+		for (int r = 0; r < maxRadius; ++r) {
+			for (int dy = -r; dy <= r; ++dy) {
+				for (int dx = -r; dx <= r; ++dx) {
+					if ((Math.abs(dx) == r || Math.abs(dy) == r) && isFree(col + dx, row + dy)) {
+						return (row + dy) * numCols + col + dx;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// distance trees
+
+	private float[][] computeTrees(int[] roots) {
+		float[][] trees = new float[roots.length][];
+		IntStream.range(0, roots.length).parallel().forEach(i -> trees[i] = computeTree(roots[i]));
+		return trees;
+	}
+
+	/*
+	 * Dijkstra search over the whole map. Unreachable cells get infinite distance. The tree holds the
+	 * rounded distances, the queue keys are exact. A neighbor is queued again if its new distance
+	 * rounds to its stored distance, so no shorter distance is lost by rounding.
+	 */
+	private float[] computeTree(int root) {
+		int numCells = numCols * numRows;
+		float[] tree = new float[numCells];
+		Arrays.fill(tree, Float.POSITIVE_INFINITY);
+		boolean[] settled = new boolean[numCells];
+		VertexQueue queue = new VertexQueue();
+		tree[root] = 0;
+		queue.add(root, 0);
+		while (!queue.isEmpty()) {
+			double dist = queue.peekKey();
+			int u = queue.poll();
+			if (settled[u]) {
+				continue;
+			}
+			settled[u] = true;
+			tree[u] = (float) dist;
+			int col = u % numCols, row = u / numCols;
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if ((dx != 0 || dy != 0) && (diagonal || dx == 0 || dy == 0) && isFree(col + dx, row + dy)) {
+						int v = (row + dy) * numCols + col + dx;
+						double newDist = dist + (dx != 0 && dy != 0 ? SQRT2 : 1);
+						if (!settled[v] && (float) newDist <= tree[v]) {
+							tree[v] = (float) newDist;
+							queue.add(v, newDist);
+						}
+					}
+				}
+			}
+		}
+		return tree;
+	}
+
+	private boolean isFree(int cell) {
+		return compactMap != null ? !compactMap.isWall(cell) : map.get(cell) != Tile.WALL;
+	}
+
+	private boolean isFree(int col, int row) {
+		return 0 <= col && col < numCols && 0 <= row && row < numRows && isFree(row * numCols + col);
+	}
+}
@@ -0,0 +1,233 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.amr.demos.graph.pathfinding.model.MapChangeListener;
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Lifelong Planning A* (LPA*, Koenig and Likhachev, 2002).
+ * <p>
+ * The search keeps its state between runs. Calling {@link #start(int, int)} again with the same
+ * source and target does not reset it. Changed cells are reported by {@link #cellChanged(int)},
+ * which makes only the affected vertices inconsistent again. The next run repairs the previous
+ * search tree, so its cost is proportional to the effect of the change instead of the map size.
+ * <p>
+ * The cost of a vertex is its g-value; {@code rhs} holds the one-step lookahead values. The open
+ * list contains the locally inconsistent vertices ({@code g != rhs}).
+ *
+ * @author Armin Reichert
+ */
+public class LifelongPlanningAStar extends AbstractGridSearch implements MapChangeListener {
+
+	private static final double INFINITE = Path.INFINITE_COST;
+
+	// keys are sums of edge costs, treat keys as equal if they only differ by rounding errors
+	private static final double KEY_TOLERANCE = 1e-9;
+
+	private double[] rhs;
+	private final BitSet queued = new BitSet();
+	private boolean initialized;
+	// map edits on the event dispatch thread and animated searches on virtual threads use the state
+	private final ReentrantLock lock = new ReentrantLock();
+
+	public LifelongPlanningAStar(GridGraph2D<Tile, ?> map) {
+		super(map);
+	}
+
+	/**
+	 * Starts a new search unless source and target are those of the current search. In that case the
+	 * current search state is kept and the next exploration steps repair it.
+	 */
+	@Override
+	public void start(int source, int target) {
+		lock.lock();
+		try {
+			if (initialized && source == this.source && target == this.target) {
+				return;
+			}
+			super.start(source, target);
+			if (rhs == null || rhs.length != cost.length) {
+				rhs = new double[cost.length];
+			}
+			Arrays.fill(rhs, INFINITE);
+			queued.clear();
+			rhs[source] = 0;
+			updateQueue(source);
+			initialized = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Must be called after the content of a map cell has changed.
+	 *
+	 * @param cell changed cell
+	 */
+	@Override
+	public void cellChanged(int cell) {
+		lock.lock();
+		try {
+			if (!initialized) {
+				return;
+			}
+			updateVertex(cell);
+			int col = col(cell), row = row(cell);
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if (isMove(dx, dy) && isInside(col + dx, row + dy)) {
+						updateVertex(cell(col + dx, row + dy));
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean canExplore() {
+		lock.lock();
+		try {
+			discardOutdated();
+			return !open.isEmpty() || isTargetReached();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		lock.lock();
+		try {
+			discardOutdated();
+			if (isTargetReached()) {
+				return true;
+			}
+			if (open.isEmpty()) {
+				return false;
+			}
+			int u = open.poll();
+			queued.clear(u);
+			fireVertexRemovedFromFrontier(u);
+			int col = col(u), row = row(u);
+			if (cost[u] > rhs[u]) {
+				cost[u] = rhs[u];
+				setState(u, COMPLETED);
+			} else {
+				cost[u] = INFINITE;
+				setState(u, VISITED);
+				updateVertex(u);
+			}
+			for (int dy = -1; dy <= 1; ++dy) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if (isMove(dx, dy) && isInside(col + dx, row + dy)) {
+						updateVertex(cell(col + dx, row + dy));
+					}
+				}
+			}
+			discardOutdated();
+			return isTargetReached();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean isMove(int dx, int dy) {
+		return (dx != 0 || dy != 0) && (diagonal || dx == 0 || dy == 0);
+	}
+
+	private boolean isInside(int col, int row) {
+		return 0 <= col && col < numCols && 0 <= row && row < numRows;
+	}
+
+	private double key1(int v) {
+		return Math.min(cost[v], rhs[v]) + getEstimatedCostToTarget(v);
+	}
+
+	private double key2(int v) {
+		return Math.min(cost[v], rhs[v]);
+	}
+
+	/*
+	 * The target is reached when it is consistent, has a finite cost and no queue entry has a
+	 * smaller key. Vertices whose key only differs from the key of the target by rounding errors
+	 * are still expanded, otherwise they may remain inconsistent on a shortest path.
+	 */
+	private boolean isTargetReached() {
+		if (cost[target] != rhs[target] || cost[target] == INFINITE) {
+			return false;
+		}
+		if (open.isEmpty()) {
+			return true;
+		}
+		double topKey1 = open.peekKey(), topKey2 = open.peekKey2();
+		double targetKey1 = key1(target), targetKey2 = key2(target);
+		return topKey1 > targetKey1 + KEY_TOLERANCE
+				|| (topKey1 >= targetKey1 - KEY_TOLERANCE && topKey2 >= targetKey2 - KEY_TOLERANCE);
+	}
+
+	/*
+	 * Queue entries are outdated if their vertex has become consistent or its key has changed.
+	 */
+	private void discardOutdated() {
+		while (!open.isEmpty()) {
+			int v = open.peek();
+			if (cost[v] == rhs[v]) {
+				queued.clear(v);
+			} else if (open.peekKey() == key1(v) && open.peekKey2() == key2(v)) {
+				return;
+			}
+			open.poll();
+		}
+	}
+
+	private void updateVertex(int v) {
+		if (v != source) {
+			double best = INFINITE;
+			int bestParent = NO_VERTEX;
+			if (isFree(v)) {
+				int col = col(v), row = row(v);
+				for (int dy = -1; dy <= 1; ++dy) {
+					for (int dx = -1; dx <= 1; ++dx) {
+						if (isMove(dx, dy) && canMove(col, row, dx, dy)) {
+							int u = cell(col + dx, row + dy);
+							if (cost[u] != INFINITE && cost[u] + lineCost(dx, dy) < best) {
+								best = cost[u] + lineCost(dx, dy);
+								bestParent = u;
+							}
+						}
+					}
+				}
+			}
+			rhs[v] = best;
+			parent[v] = bestParent;
+		}
+		updateQueue(v);
+	}
+
+	private void updateQueue(int v) {
+		if (cost[v] != rhs[v]) {
+			if (!queued.get(v)) {
+				queued.set(v);
+				if (state[v] == UNVISITED) {
+					setState(v, VISITED);
+				}
+				fireVertexAddedToFrontier(v);
+			}
+			open.add(v, key1(v), key2(v));
+		}
+	}
+
+	@Override
+	public long getStateSizeBytes() {
+		return rhs == null ? 0 : super.getStateSizeBytes() + 8L * rhs.length + queued.size() / 8;
+	}
+}
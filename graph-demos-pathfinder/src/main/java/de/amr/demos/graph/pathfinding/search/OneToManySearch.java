@@ -0,0 +1,121 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import static de.amr.graph.core.api.Graph.NO_VERTEX;
+
+import java.util.BitSet;
+
+import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Dijkstra search from one source to a set of targets.
+ * <p>
+ * The search runs until all targets are settled (or all reachable cells are), then every path is
+ * built from the same parent array. For {@code n} targets this costs one search instead of
+ * {@code n}.
+ *
+ * @author Armin Reichert
+ */
+public class OneToManySearch extends AbstractGridSearch {
+
+	private final BitSet pendingTargets = new BitSet();
+	private int numPendingTargets;
+
+	public OneToManySearch(GridGraph2D<Tile, ?> map) {
+		super(map);
+	}
+
+	/**
+	 * Finds shortest paths from the source to each of the targets. Unreachable targets get
+	 * {@link Path#NULL}. Afterwards, {@link #getCost(int)} returns the path cost of each target.
+	 *
+	 * @param source  source cell
+	 * @param targets target cells, duplicates are allowed
+	 * @return paths in the order of the targets
+	 */
+	public Path[] findPaths(int source, int[] targets) {
+		start(source, targets);
+		while (canExplore()) {
+			if (exploreVertex()) {
+				break;
+			}
+		}
+		Path[] paths = new Path[targets.length];
+		for (int i = 0; i < targets.length; ++i) {
+			paths[i] = cost[targets[i]] == Path.INFINITE_COST ? Path.NULL : buildPath(targets[i]);
+		}
+		return paths;
+	}
+
+	@Override
+	public void start(int source, int target) {
+		start(source, new int[] { target });
+	}
+
+	/**
+	 * Starts a search to all given targets. {@link #exploreVertex()} returns {@code true} when the
+	 * last target is settled.
+	 *
+	 * @param source  source cell
+	 * @param targets target cells
+	 */
+	public void start(int source, int[] targets) {
+		super.start(source, targets.length == 1 ? targets[0] : NO_VERTEX);
+		pendingTargets.clear();
+		for (int t : targets) {
+			pendingTargets.set(t);
+		}
+		numPendingTargets = pendingTargets.cardinality();
+		cost[source] = 0;
+		setState(source, VISITED);
+		open.add(source, 0);
+		fireVertexAddedToFrontier(source);
+	}
+
+	@Override
+	public double getEstimatedCostToTarget(int v) {
+		return 0;
+	}
+
+	@Override
+	public boolean exploreVertex() {
+		int current = open.poll();
+		if (state[current] == COMPLETED) {
+			return false; // outdated queue entry
+		}
+		fireVertexRemovedFromFrontier(current);
+		setState(current, COMPLETED);
+		if (pendingTargets.get(current)) {
+			pendingTargets.clear(current);
+			if (--numPendingTargets == 0) {
+				return true;
+			}
+		}
+		int col = col(current), row = row(current);
+		for (int dy = -1; dy <= 1; ++dy) {
+			for (int dx = -1; dx <= 1; ++dx) {
+				if ((dx == 0 && dy == 0) || !canMove(col, row, dx, dy)) {
+					continue;
+				}
+				int neighbor = cell(col + dx, row + dy);
+				if (state[neighbor] == COMPLETED) {
+					continue;
+				}
+				double newCost = cost[current] + lineCost(dx, dy);
+				if (newCost < cost[neighbor]) {
+					cost[neighbor] = newCost;
+					parent[neighbor] = current;
+					if (state[neighbor] == UNVISITED) {
+						setState(neighbor, VISITED);
+						fireVertexAddedToFrontier(neighbor);
+					}
+					fireEdgeTraversed(current, neighbor);
+					open.add(neighbor, newCost);
+				}
+			}
+		}
+		discardCompleted();
+		return false;
+	}
+}
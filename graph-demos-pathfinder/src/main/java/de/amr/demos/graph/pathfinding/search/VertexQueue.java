@@ -0,0 +1,118 @@
+package de.amr.demos.graph.pathfinding.search;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of vertices with primitive keys. Keys are compared lexicographically (first key,
+ * then second key).
+ * <p>
+ * The queue has no decrease-key operation. Instead, a vertex is added again with its smaller key and
+ * the search skips the outdated entries when they are polled ("lazy deletion").
+ *
+ * @author Armin Reichert
+ */
+public class VertexQueue {
+
+	private int[] vertices = new int[64];
+	private double[] keys1 = new double[64];
+	private double[] keys2 = new double[64];
+	private int size;
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(int v, double key) {
+		add(v, key, 0);
+	}
+
+	public void add(int v, double key1, double key2) {
+		if (size == vertices.length) {
+			int capacity = 2 * size;
+			vertices = Arrays.copyOf(vertices, capacity);
+			keys1 = Arrays.copyOf(keys1, capacity);
+			keys2 = Arrays.copyOf(keys2, capacity);
+		}
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!less(key1, key2, keys1[parent], keys2[parent])) {
+				break;
+			}
+			move(parent, i);
+			i = parent;
+		}
+		set(i, v, key1, key2);
+	}
+
+	public int peek() {
+		checkNotEmpty();
+		return vertices[0];
+	}
+
+	public double peekKey() {
+		checkNotEmpty();
+		return keys1[0];
+	}
+
+	public double peekKey2() {
+		checkNotEmpty();
+		return keys2[0];
+	}
+
+	public int poll() {
+		checkNotEmpty();
+		int top = vertices[0];
+		--size;
+		if (size > 0) {
+			int v = vertices[size];
+			double key1 = keys1[size], key2 = keys2[size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && less(keys1[child + 1], keys2[child + 1], keys1[child], keys2[child])) {
+					++child;
+				}
+				if (!less(keys1[child], keys2[child], key1, key2)) {
+					break;
+				}
+				move(child, i);
+				i = child;
+			}
+			set(i, v, key1, key2);
+		}
+		return top;
+	}
+
+	private static boolean less(double a1, double a2, double b1, double b2) {
+		return a1 < b1 || (a1 == b1 && a2 < b2);
+	}
+
+	private void move(int from, int to) {
+		set(to, vertices[from], keys1[from], keys2[from]);
+	}
+
+	private void set(int i, int v, double key1, double key2) {
+		vertices[i] = v;
+		keys1[i] = key1;
+		keys2[i] = key2;
+	}
+
+	private void checkNotEmpty() {
+		if (size == 0) {
+			throw new NoSuchElementException("Vertex queue is empty");
+		}
+	}
+}
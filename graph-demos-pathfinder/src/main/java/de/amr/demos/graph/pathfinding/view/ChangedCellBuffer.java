@@ -0,0 +1,109 @@
+package de.amr.demos.graph.pathfinding.view;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of changed cells shared between a search thread that adds cells and the event dispatch thread
+ * that drains them once per frame.
+ * <p>
+ * The set is a bitmap of atomic words, adding a cell sets its bit without locking and adding it again
+ * before the next frame costs nothing. A second bitmap marks the words containing changed cells, so
+ * draining visits each changed cell once and skips unchanged regions of large maps.
+ *
+ * @author Armin Reichert
+ */
+public class ChangedCellBuffer {
+
+	private volatile AtomicLongArray bits = new AtomicLongArray(0);
+	private volatile AtomicLongArray dirtyWords = new AtomicLongArray(0);
+	private volatile boolean pending;
+
+	/**
+	 * Clears the buffer and adapts it to the given number of cells.
+	 *
+	 * @param numCells number of cells of the map
+	 */
+	public void resize(int numCells) {
+		if (numCells < 0) {
+			throw new IllegalArgumentException("Illegal number of cells: " + numCells);
+		}
+		if (bits.length() == (numCells + 63) >>> 6) {
+			clear();
+		} else {
+			int numWords = (numCells + 63) >>> 6;
+			dirtyWords = new AtomicLongArray((numWords + 63) >>> 6);
+			bits = new AtomicLongArray(numWords);
+			pending = false;
+		}
+	}
+
+	/**
+	 * Adds a changed cell. Cells outside of the buffer are ignored.
+	 *
+	 * @param cell changed cell
+	 */
+	public void add(int cell) {
+		AtomicLongArray words = bits, summary = dirtyWords;
+		int index = cell >>> 6;
+		if (cell < 0 || index >= words.length() || summary.length() != (words.length() + 63) >>> 6) {
+			return;
+		}
+		long mask = 1L << cell;
+		if ((words.get(index) & mask) == 0) {
+			words.accumulateAndGet(index, mask, (word, bit) -> word | bit);
+			long summaryMask = 1L << index;
+			if ((summary.get(index >>> 6) & summaryMask) == 0) {
+				summary.accumulateAndGet(index >>> 6, summaryMask, (word, bit) -> word | bit);
+			}
+		}
+		pending = true;
+	}
+
+	/**
+	 * Removes all cells from the buffer and passes them to the given action in ascending order.
+	 *
+	 * @param action receives the changed cells
+	 * @return number of drained cells
+	 */
+	public int drain(IntConsumer action) {
+		if (!pending) {
+			return 0;
+		}
+		pending = false;
+		AtomicLongArray words = bits, summary = dirtyWords;
+		int count = 0;
+		for (int s = 0; s < summary.length(); ++s) {
+			if (summary.get(s) == 0) {
+				continue;
+			}
+			// a word bit is always set before its summary bit, so no change gets lost
+			long dirty = summary.getAndSet(s, 0);
+			while (dirty != 0) {
+				int index = (s << 6) + Long.numberOfTrailingZeros(dirty);
+				dirty &= dirty - 1;
+				if (index >= words.length()) {
+					continue;
+				}
+				long word = words.getAndSet(index, 0);
+				while (word != 0) {
+					action.accept((index << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
+	public void clear() {
+		pending = false;
+		AtomicLongArray words = bits, summary = dirtyWords;
+		for (int index = 0; index < words.length(); ++index) {
+			words.set(index, 0);
+		}
+		for (int index = 0; index < summary.length(); ++index) {
+			summary.set(index, 0);
+		}
+	}
+}
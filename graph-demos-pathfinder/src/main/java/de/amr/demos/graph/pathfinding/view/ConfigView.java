@@ -4,7 +4,10 @@ import de.amr.demos.graph.pathfinding.controller.ExecutionMode;
 import de.amr.demos.graph.pathfinding.controller.PathFinderController;
 import de.amr.demos.graph.pathfinding.controller.RenderingStyle;
 import de.amr.demos.graph.pathfinding.controller.TopologySelection;
+import de.amr.demos.graph.pathfinding.model.Heuristic;
 import de.amr.demos.graph.pathfinding.model.PathFinderModel;
+import de.amr.demos.graph.pathfinding.model.SearchBudget;
+import de.amr.demos.graph.pathfinding.search.Landmarks;
 import de.amr.graph.grid.impl.Grid4Topology;
 import de.amr.swing.MySwing;
 import net.miginfocom.swing.MigLayout;
@@ -34,6 +37,7 @@ public class ConfigView extends JPanel {
 	private final JSpinner spinnerMapSize;
 	private final JComboBox<TopologySelection> comboTopology;
 	private final JComboBox<ExecutionMode> comboExecutionMode;
+	private final JComboBox<Heuristic> comboHeuristic;
 	private final ResultsTable tableResults;
 	private final JCheckBox cbShowCost;
 	private final JCheckBox cbShowParent;
@@ -47,9 +51,15 @@ public class ConfigView extends JPanel {
 	private final JLabel lblNewLabel;
 	private final JLabel lblTotalCells;
 	private final JLabel lblDelay;
+	private final JLabel lblLandmarks;
+	private final JSpinner spinnerWarmupRuns;
+	private final JSpinner spinnerTimedRuns;
+	private final JSpinner spinnerMaxExpansions;
+	private final JSpinner spinnerTimeLimit;
 
 	private Action actionSelectTopology;
 	private Action actionSelectExecutionMode;
+	private Action actionSelectHeuristic;
 	private Action actionSelectStyle;
 	private Action actionStartSelectedPathFinder;
 	private Action actionStepPathFinders;
@@ -58,6 +68,8 @@ public class ConfigView extends JPanel {
 	private Action actionShowParent;
 	private ChangeListener onMapSizeChange;
 	private ChangeListener onDelayChange;
+	private ChangeListener onMeasurementChange;
+	private ChangeListener onSearchBudgetChange;
 
 	public ConfigView() {
 		setPreferredSize(new Dimension(450, 600));
@@ -130,7 +142,7 @@ public class ConfigView extends JPanel {
 		tabPathFinding = new JPanel();
 		tabPathFinding.setBackground(Color.WHITE);
 		tabbedPane.addTab("Pathfinding", null, tabPathFinding, null);
-		tabPathFinding.setLayout(new MigLayout("", "[][10px:10px:10px][grow]", "[][][][]"));
+		tabPathFinding.setLayout(new MigLayout("", "[][10px:10px:10px][grow]", "[][][][][][][]"));
 
 		lblNewLabel = new JLabel("Execution Mode");
 		tabPathFinding.add(lblNewLabel, "cell 0 0");
@@ -193,6 +205,53 @@ public class ConfigView extends JPanel {
 		sliderDelay.setMaximum(1000);
 		lblDelay.setLabelFor(sliderDelay);
 
+		JLabel lblHeuristic = new JLabel("Heuristic");
+		tabPathFinding.add(lblHeuristic, "cell 0 4");
+
+		comboHeuristic = new JComboBox<>();
+		tabPathFinding.add(comboHeuristic, "flowx,cell 2 4");
+		lblHeuristic.setLabelFor(comboHeuristic);
+
+		lblLandmarks = new JLabel("");
+		tabPathFinding.add(lblLandmarks, "cell 2 4");
+
+		JLabel lblMeasurement = new JLabel("Measurement");
+		tabPathFinding.add(lblMeasurement, "cell 0 5");
+
+		JLabel lblWarmupRuns = new JLabel("Warm-up");
+		tabPathFinding.add(lblWarmupRuns, "flowx,cell 2 5");
+
+		spinnerWarmupRuns = new JSpinner();
+		spinnerWarmupRuns.setToolTipText("Untimed runs before measuring");
+		tabPathFinding.add(spinnerWarmupRuns, "cell 2 5");
+		lblWarmupRuns.setLabelFor(spinnerWarmupRuns);
+
+		JLabel lblTimedRuns = new JLabel("Repetitions");
+		tabPathFinding.add(lblTimedRuns, "cell 2 5");
+
+		spinnerTimedRuns = new JSpinner();
+		spinnerTimedRuns.setToolTipText("Timed runs, the median is shown as running time");
+		tabPathFinding.add(spinnerTimedRuns, "cell 2 5");
+		lblTimedRuns.setLabelFor(spinnerTimedRuns);
+
+		JLabel lblBudget = new JLabel("Budget");
+		tabPathFinding.add(lblBudget, "cell 0 6");
+
+		JLabel lblMaxExpansions = new JLabel("Expansions");
+		tabPathFinding.add(lblMaxExpansions, "flowx,cell 2 6");
+
+		spinnerMaxExpansions = new JSpinner();
+		spinnerMaxExpansions.setToolTipText("Maximum number of expansions per run, 0 = unlimited");
+		tabPathFinding.add(spinnerMaxExpansions, "cell 2 6");
+		lblMaxExpansions.setLabelFor(spinnerMaxExpansions);
+
+		JLabel lblTimeLimit = new JLabel("Time [ms]");
+		tabPathFinding.add(lblTimeLimit, "cell 2 6");
+
+		spinnerTimeLimit = new JSpinner();
+		spinnerTimeLimit.setToolTipText("Maximum running time per run, 0 = unlimited");
+		tabPathFinding.add(spinnerTimeLimit, "cell 2 6");
+		lblTimeLimit.setLabelFor(spinnerTimeLimit);
 
 		createActions();
 	}
@@ -206,6 +265,11 @@ public class ConfigView extends JPanel {
 			controller.changeExecutionMode(comboSelection(comboExecutionMode));
 		});
 
+		actionSelectHeuristic = MySwing.action("Select Heuristic", e -> {
+			controller.changeHeuristic(comboSelection(comboHeuristic));
+			updateViewState();
+		});
+
 		actionSelectStyle = MySwing.action("Select Map Style", e -> {
 			controller.changeStyle(comboSelection(comboStyle));
 		});
@@ -234,6 +298,10 @@ public class ConfigView extends JPanel {
 
 		onMapSizeChange = e -> controller.changeMapSize((int) spinnerMapSize.getValue());
 		onDelayChange = e -> controller.setAnimationDelay(sliderDelay.getValue());
+		onMeasurementChange = e -> controller.changeMeasurement((int) spinnerWarmupRuns.getValue(),
+				(int) spinnerTimedRuns.getValue());
+		onSearchBudgetChange = e -> controller.changeSearchBudget((int) spinnerMaxExpansions.getValue(),
+				(int) spinnerTimeLimit.getValue());
 
 	}
 
@@ -260,6 +328,18 @@ public class ConfigView extends JPanel {
 		sliderDelay.setValue(controller.getAnimationDelay());
 		sliderDelay.addChangeListener(onDelayChange);
 
+		spinnerWarmupRuns.setModel(new SpinnerNumberModel(model.getWarmupRuns(), 0, 1000, 1));
+		spinnerWarmupRuns.addChangeListener(onMeasurementChange);
+		spinnerTimedRuns.setModel(new SpinnerNumberModel(model.getTimedRuns(), 1, 1000, 1));
+		spinnerTimedRuns.addChangeListener(onMeasurementChange);
+
+		SearchBudget budget = model.getSearchBudget();
+		spinnerMaxExpansions.setModel(new SpinnerNumberModel((int) budget.maxExpansions(), 0, Integer.MAX_VALUE, 100));
+		spinnerMaxExpansions.addChangeListener(onSearchBudgetChange);
+		spinnerTimeLimit.setModel(
+				new SpinnerNumberModel((int) (budget.timeLimitNanos() / 1_000_000), 0, Integer.MAX_VALUE, 10));
+		spinnerTimeLimit.addChangeListener(onSearchBudgetChange);
+
 		comboTopology.setModel(new DefaultComboBoxModel<>(TopologySelection.values()));
 		comboTopology.setSelectedItem(model.getMap().getTopology() == Grid4Topology.get() ? TopologySelection._4_NEIGHBORS
 				: TopologySelection._8_NEIGHBORS);
@@ -269,6 +349,10 @@ public class ConfigView extends JPanel {
 		comboExecutionMode.setSelectedItem(controller.getExecutionMode());
 		comboExecutionMode.setAction(actionSelectExecutionMode);
 
+		comboHeuristic.setModel(new DefaultComboBoxModel<>(Heuristic.values()));
+		comboHeuristic.setSelectedItem(model.getHeuristic());
+		comboHeuristic.setAction(actionSelectHeuristic);
+
 		cbShowCost.setSelected(controller.isShowingCost());
 		cbShowParent.setSelected(controller.isShowingParent());
 
@@ -282,6 +366,7 @@ public class ConfigView extends JPanel {
 		cbShowCost.setSelected(controller.isShowingCost());
 		cbShowParent.setSelected(controller.isShowingParent());
 		selectComboNoAction(comboStyle, controller.getStyle());
+		selectComboNoAction(comboHeuristic, model.getHeuristic());
 		updateViewState();
 		Logger.trace("ConfigView updated: %s", this);
 	}
@@ -294,7 +379,21 @@ public class ConfigView extends JPanel {
 		actionStepPathFinders.setEnabled(manual);
 		actionFinishPathFinders.setEnabled(manual);
 		btnRunAnimation.setEnabled(manual);
-		scrollPaneTableResults.setVisible(controller.getExecutionMode() == ExecutionMode.ALL);
+		scrollPaneTableResults.setVisible(controller.getExecutionMode() == ExecutionMode.ALL
+				|| controller.getExecutionMode() == ExecutionMode.ALL_PARALLEL);
 		cbShowCost.setVisible(comboStyle.getSelectedItem() == RenderingStyle.BLOCKS);
+		if (model.getHeuristic() == Heuristic.ALT) {
+			Landmarks landmarks = model.getLandmarksIfCreated();
+			if (model.getLandmarksFallback() != null) {
+				lblLandmarks.setText(model.getLandmarksFallback());
+			} else if (landmarks != null) {
+				lblLandmarks.setText(String.format("%d %s landmarks, %.1f MB, %.1f ms", landmarks.numLandmarks(),
+						landmarks.getSelection(), landmarks.sizeBytes() / (1024.0 * 1024.0), landmarks.getBuildTimeMillis()));
+			} else {
+				lblLandmarks.setText("Computing landmarks...");
+			}
+		} else {
+			lblLandmarks.setText("");
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package de.amr.demos.graph.pathfinding.view;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import javax.swing.JComponent;
+
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Renders maps that are too large for one cell per grid canvas block. Each pixel shows a sample cell
+ * of the block of cells it covers, so rendering cost depends on the view size and not on the number
+ * of cells. Highlighted cells (path, source, target) are drawn on top such that they cannot be lost
+ * by sampling.
+ *
+ * @author Armin Reichert
+ */
+public class MapOverview extends JComponent {
+
+	public Supplier<GridGraph2D<?, ?>> fnMap;
+	public IntFunction<Color> fnCellColor;
+	public Supplier<Iterable<Integer>> fnHighlightedCells;
+	public IntFunction<Color> fnHighlightColor;
+	public IntSupplier fnSource;
+	public IntSupplier fnTarget;
+
+	private BufferedImage image;
+	private boolean dirty = true;
+
+	public void redraw() {
+		dirty = true;
+		repaint();
+	}
+
+	/**
+	 * Redraws only the pixels showing cells of the given rectangle.
+	 * 
+	 * @param minCol left column of changed rectangle
+	 * @param minRow top row of changed rectangle
+	 * @param maxCol right column of changed rectangle
+	 * @param maxRow bottom row of changed rectangle
+	 */
+	public void redrawRegion(int minCol, int minRow, int maxCol, int maxRow) {
+		if (dirty || image == null || image.getWidth() != getMapExtent()) {
+			redraw();
+			return;
+		}
+		GridGraph2D<?, ?> map = fnMap.get();
+		int extent = image.getWidth();
+		// pixel x shows column x * numCols / extent
+		int x0 = (int) (((long) minCol * extent + map.numCols() - 1) / map.numCols());
+		int x1 = (int) (((long) (maxCol + 1) * extent + map.numCols() - 1) / map.numCols()) - 1;
+		int y0 = (int) (((long) minRow * extent + map.numRows() - 1) / map.numRows());
+		int y1 = (int) (((long) (maxRow + 1) * extent + map.numRows() - 1) / map.numRows()) - 1;
+		if (x0 <= x1 && y0 <= y1) {
+			renderPixels(map, x0, y0, x1, y1);
+		}
+		renderHighlights(map);
+		repaint();
+	}
+
+	/**
+	 * @return number of pixels per side of the rendered map
+	 */
+	public int getMapExtent() {
+		return Math.min(getWidth(), getHeight());
+	}
+
+	/**
+	 * @param x x-coordinate inside this component
+	 * @param y y-coordinate inside this component
+	 * @return map cell displayed at this position
+	 */
+	public int cellAt(int x, int y) {
+		GridGraph2D<?, ?> map = fnMap.get();
+		int extent = Math.max(1, getMapExtent());
+		int col = Math.max(0, Math.min((int) ((long) x * map.numCols() / extent), map.numCols() - 1));
+		int row = Math.max(0, Math.min((int) ((long) y * map.numRows() / extent), map.numRows() - 1));
+		return map.cell(col, row);
+	}
+
+	private void render() {
+		GridGraph2D<?, ?> map = fnMap.get();
+		int extent = getMapExtent();
+		if (extent <= 0) {
+			return;
+		}
+		if (image == null || image.getWidth() != extent) {
+			image = new BufferedImage(extent, extent, BufferedImage.TYPE_INT_RGB);
+		}
+		renderPixels(map, 0, 0, extent - 1, extent - 1);
+		renderHighlights(map);
+		dirty = false;
+	}
+
+	private void renderPixels(GridGraph2D<?, ?> map, int x0, int y0, int x1, int y1) {
+		int extent = image.getWidth();
+		int width = x1 - x0 + 1, height = y1 - y0 + 1;
+		int[] pixels = new int[width * height];
+		for (int y = y0; y <= y1; ++y) {
+			int row = (int) ((long) y * map.numRows() / extent);
+			for (int x = x0; x <= x1; ++x) {
+				int col = (int) ((long) x * map.numCols() / extent);
+				pixels[(y - y0) * width + x - x0] = fnCellColor.apply(map.cell(col, row)).getRGB();
+			}
+		}
+		image.setRGB(x0, y0, width, height, pixels, 0, width);
+	}
+
+	private void renderHighlights(GridGraph2D<?, ?> map) {
+		int extent = image.getWidth();
+		for (int cell : fnHighlightedCells.get()) {
+			setPixel(map, cell, fnHighlightColor.apply(cell), 0);
+		}
+		int markerRadius = Math.max(1, extent / 100);
+		setPixel(map, fnSource.getAsInt(), fnCellColor.apply(fnSource.getAsInt()), markerRadius);
+		setPixel(map, fnTarget.getAsInt(), fnCellColor.apply(fnTarget.getAsInt()), markerRadius);
+	}
+
+	private void setPixel(GridGraph2D<?, ?> map, int cell, Color color, int radius) {
+		int extent = image.getWidth();
+		int x = (int) ((long) map.col(cell) * extent / map.numCols());
+		int y = (int) ((long) map.row(cell) * extent / map.numRows());
+		for (int dy = -radius; dy <= radius; ++dy) {
+			for (int dx = -radius; dx <= radius; ++dx) {
+				if (0 <= x + dx && x + dx < extent && 0 <= y + dy && y + dy < extent) {
+					image.setRGB(x + dx, y + dy, color.getRGB());
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		if (dirty || image == null || image.getWidth() != getMapExtent()) {
+			render();
+		}
+		g.setColor(getBackground());
+		g.fillRect(0, 0, getWidth(), getHeight());
+		if (image != null) {
+			g.drawImage(image, 0, 0, null);
+		}
+	}
+}
@@ -3,8 +3,11 @@ package de.amr.demos.graph.pathfinding.view;
 import de.amr.demos.graph.pathfinding.controller.ExecutionMode;
 import de.amr.demos.graph.pathfinding.controller.PathFinderController;
 import de.amr.demos.graph.pathfinding.controller.RenderingStyle;
+import de.amr.demos.graph.pathfinding.model.MapChangeJournal.DirtyRegion;
 import de.amr.demos.graph.pathfinding.model.PathFinderModel;
 import de.amr.demos.graph.pathfinding.model.Tile;
+import de.amr.demos.graph.pathfinding.search.AbstractGridSearch;
+import de.amr.demos.graph.pathfinding.search.GridBidiSearch;
 import de.amr.demos.graph.pathfinding.view.renderer.blocks.BlocksMap;
 import de.amr.demos.graph.pathfinding.view.renderer.blocks.Cell;
 import de.amr.demos.graph.pathfinding.view.renderer.pearls.PearlsCellRenderer;
@@ -28,6 +31,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.function.IntSupplier;
 
@@ -55,34 +59,91 @@ public class MapView extends JPanel {
 	private JRadioButtonMenuItem rbExecutionAutomatic;
 	private JCheckBoxMenuItem cbShowCost;
 	private JCheckBoxMenuItem cbShowParent;
+	private JCheckBoxMenuItem cbShowFlowField;
 	private final GridCanvas canvas;
+	private final MapOverview overview;
+	private volatile boolean overviewMode;
 	private IntSupplier fnPathFinderIndex;
+	private long renderedMapVersion = -1;
+	private final ChangedCellBuffer changedCells = new ChangedCellBuffer();
+	private final Timer frameTimer = new Timer(1000 / FRAMES_PER_SECOND, e -> drawChangedCells());
+	private int runningAnimations;
 
 	private int getPathFinderIndex() {
 		return fnPathFinderIndex.getAsInt();
 	}
 
+	/**
+	 * Animates a search running on another thread. The search events only mark the changed cells, a
+	 * frame timer on the event dispatch thread draws the cells changed since the last frame. Passages
+	 * are not drawn, their color does not change during a search.
+	 */
 	public class PathFinderAnimation implements GraphSearchObserver {
 
 		private final DelayedRunner delay = new DelayedRunner();
 
+		public PathFinderAnimation() {
+			changedCells.resize(model.getMap().numVertices());
+			SwingUtilities.invokeLater(MapView.this::startFrames);
+		}
+
 		public DelayedRunner getDelay() {
 			return delay;
 		}
 
+		/**
+		 * Ends the animation after the search has stopped. The cells changed since the last frame are
+		 * drawn.
+		 */
+		public void finish() {
+			SwingUtilities.invokeLater(MapView.this::stopFrames);
+		}
+
+		// the overview is redrawn when the search is done
+
 		@Override
 		public void vertexStateChanged(int v, TraversalState oldState, TraversalState newState) {
-			delay.run(() -> canvas.drawGridCell(v));
+			if (!overviewMode) {
+				delay.run(() -> changedCells.add(v));
+			}
 		}
 
 		@Override
 		public void edgeTraversed(int either, int other) {
-			delay.run(() -> canvas.drawGridPassage(either, other, true));
+			if (!overviewMode) {
+				delay.run(() -> {
+					changedCells.add(either);
+					changedCells.add(other);
+				});
+			}
 		}
 
 		@Override
 		public void vertexRemovedFromFrontier(int v) {
-			delay.run(() -> canvas.drawGridCell(v));
+			if (!overviewMode) {
+				delay.run(() -> changedCells.add(v));
+			}
+		}
+	}
+
+	private void startFrames() {
+		if (runningAnimations++ == 0) {
+			frameTimer.start();
+		}
+	}
+
+	private void stopFrames() {
+		if (--runningAnimations == 0) {
+			frameTimer.stop();
+			drawChangedCells();
+		}
+	}
+
+	private void drawChangedCells() {
+		if (overviewMode) {
+			changedCells.clear();
+		} else {
+			changedCells.drain(canvas::drawGridCell);
 		}
 	}
 
@@ -101,6 +162,9 @@ public class MapView extends JPanel {
 		}
 
 		private int computeCellUnderMouse(MouseEvent e) {
+			if (overviewMode) {
+				return overview.cellAt(e.getX(), e.getY());
+			}
 			int col = max(0, min(e.getX() / canvas.getCellSize(), model.getMap().numCols() - 1));
 			int row = max(0, min(e.getY() / canvas.getCellSize(), model.getMap().numRows() - 1));
 			return model.getMap().cell(col, row);
@@ -138,7 +202,7 @@ public class MapView extends JPanel {
 				boolean noWall = model.getMap().get(cellUnderMouse) != Tile.WALL;
 				actionSetSourceHere.setEnabled(noWall);
 				actionSetTargetHere.setEnabled(noWall);
-				contextMenu.show(canvas, e.getX(), e.getY());
+				contextMenu.show(e.getComponent(), e.getX(), e.getY());
 			}
 		}
 
@@ -146,10 +210,10 @@ public class MapView extends JPanel {
 		public void mouseDragged(MouseEvent e) {
 			int cell = computeCellUnderMouse(e);
 			if (cell != draggedCell) {
-				// dragged mouse into new cell
-				draggedCell = cell;
+				// dragged mouse into new cell, paint the cells passed since the last event in one edit
 				Tile tile = e.isShiftDown() ? Tile.BLANK : Tile.WALL;
-				controller.setTileAt(cell, tile);
+				controller.paintStroke(draggedCell != Graph.NO_VERTEX ? draggedCell : cell, cell, tile);
+				draggedCell = cell;
 			}
 		}
 	}
@@ -168,6 +232,8 @@ public class MapView extends JPanel {
 		canvas = new GridCanvas();
 		canvas.setBackground(Color.WHITE);
 		add(canvas);
+		overview = new MapOverview();
+		overview.setBackground(Color.WHITE);
 	}
 
 	public PathFinderController getController() {
@@ -182,6 +248,15 @@ public class MapView extends JPanel {
 		mouse = new MouseController();
 		canvas.addMouseListener(mouse);
 		canvas.addMouseMotionListener(mouse);
+		overview.addMouseListener(mouse);
+		overview.addMouseMotionListener(mouse);
+
+		overview.fnMap = model::getMap;
+		overview.fnCellColor = this::computeCellBackground;
+		overview.fnHighlightedCells = () -> model.getResultAtIndex(getPathFinderIndex()).getPath();
+		overview.fnHighlightColor = cell -> SOLUTION_BACKGROUND;
+		overview.fnSource = model::getSource;
+		overview.fnTarget = model::getTarget;
 
 		canvas.getActionMap().setParent(controller.getActions());
 		InputMap inputMap = canvas.getInputMap();
@@ -263,7 +338,14 @@ public class MapView extends JPanel {
 		cbShowParent.setAction(controller.actionToggleShowParent());
 		contextMenu.add(cbShowParent);
 
+		cbShowFlowField = new JCheckBoxMenuItem("Show Flow Field");
+		cbShowFlowField.setSelected(controller.isShowingFlowField());
+		cbShowFlowField.setAction(controller.actionToggleShowFlowField());
+		contextMenu.add(cbShowFlowField);
+
 		contextMenu.addSeparator();
+		contextMenu.add(controller.actionOpenMap());
+		contextMenu.add(controller.actionSaveMap());
 		contextMenu.add(controller.actionResetScene());
 	}
 
@@ -277,22 +359,77 @@ public class MapView extends JPanel {
 		updateMap(false);
 	}
 
-	public void updateMapCell(int cell) {
-		canvas.drawGridCell(cell);
+	public boolean isOverviewMode() {
+		return overviewMode;
+	}
+
+	private void setOverviewMode(boolean overviewMode) {
+		if (overviewMode != this.overviewMode) {
+			this.overviewMode = overviewMode;
+			removeAll();
+			add(overviewMode ? overview : canvas);
+			revalidate();
+			Logger.info("Map view switched to %s mode".formatted(overviewMode ? "overview" : "canvas"));
+		}
+	}
+
+	/**
+	 * Redraws the cells changed since the map was last drawn. Draws the whole map if the change
+	 * journal does not cover all changes.
+	 */
+	public void updateMapChanges() {
+		long version = model.getMapVersion();
+		Optional<DirtyRegion> changes = model.getMapChangeJournal().changesSince(renderedMapVersion);
+		if (changes.isEmpty()) {
+			updateView();
+			return;
+		}
+		renderedMapVersion = version;
+		DirtyRegion region = changes.get();
+		if (region.isEmpty()) {
+			return;
+		}
+		if (overviewMode) {
+			overview.redrawRegion(region.minCol(), region.minRow(), region.maxCol(), region.maxRow());
+		} else {
+			for (int cell : region.cells()) {
+				canvas.drawGridCell(cell);
+			}
+		}
+	}
+
+	/**
+	 * Redraws the given cell, e.g. after its flow field direction has changed. In overview mode,
+	 * nothing is drawn because the overview does not show directions.
+	 *
+	 * @param cell cell to redraw
+	 */
+	public void redrawCell(int cell) {
+		if (!overviewMode) {
+			canvas.drawGridCell(cell);
+		}
 	}
 
 	public void updateView() {
+		renderedMapVersion = model.getMapVersion();
 		rb4Neighbors.setSelected(model.getMap().getTopology() == Grid4Topology.get());
 		rb8Neighbors.setSelected(model.getMap().getTopology() == Grid8Topology.get());
 		cbShowCost.setSelected(controller.isShowingCost());
 		cbShowParent.setSelected(controller.isShowingParent());
+		cbShowFlowField.setSelected(controller.isShowingFlowField());
+		cbShowFlowField.setEnabled(controller.getStyle() == RenderingStyle.BLOCKS);
 		rbShowAsBlocks.setSelected(controller.getStyle() == RenderingStyle.BLOCKS);
 		rbShowAsPearls.setSelected(controller.getStyle() == RenderingStyle.PEARLS);
 		rbExecutionAutomatic.setSelected(controller.getExecutionMode() == ExecutionMode.VISIBLE);
 		rbExecutionManual.setSelected(controller.getExecutionMode() == ExecutionMode.MANUAL);
-		canvas.clear();
-		canvas.replaceRenderer(createMapRenderer());
-		canvas.drawGrid();
+		if (overviewMode) {
+			overview.redraw();
+		} else {
+			changedCells.clear();
+			canvas.clear();
+			canvas.replaceRenderer(createMapRenderer());
+			canvas.drawGrid();
+		}
 		requestFocusInWindow();
 		Logger.trace(() -> "(%d) MapView updated: %s".formatted(updateCnt, this));
 	}
@@ -301,7 +438,12 @@ public class MapView extends JPanel {
 
 	public void updateMap(boolean updateView) {
 		int cellSize = getHeight() / model.getMapSize();
-		if (cellSize < 2) {
+		// too small for blocks, show sampled overview with one pixel per block of cells
+		setOverviewMode(cellSize < MIN_CELL_SIZE);
+		if (overviewMode) {
+			if (updateView) {
+				updateView();
+			}
 			return;
 		}
 		canvas.setCellSize(cellSize, false);
@@ -317,6 +459,8 @@ public class MapView extends JPanel {
 
 	// Rendering
 
+	private static final int MIN_CELL_SIZE = 2;
+	private static final int FRAMES_PER_SECOND = 60;
 	private static final Color MAP_BACKGROUND = new Color(180, 180, 180);
 	private static final Color WALL_BACKGROUND = new Color(139, 69, 19);
 	private static final Color SOURCE_BACKGROUND = Color.BLUE;
@@ -336,9 +480,15 @@ public class MapView extends JPanel {
 		return switch (controller.getStyle()) {
 			case BLOCKS -> {
 				Cell cell = createMapCell();
-				cell.parent = getPathFinder()::getParent;
+				if (controller.isShowingFlowField()) {
+					// needles point to the next cell towards the target instead of the parent
+					cell.parent = v -> model.getFlowField().next(v);
+					cell.showParent = () -> true;
+				} else {
+					cell.parent = getPathFinder()::getParent;
+					cell.showParent = controller::isShowingParent;
+				}
 				cell.showCost = controller::isShowingCost;
-				cell.showParent = controller::isShowingParent;
 				cell.cellTextColor = this::computeTextColor;
 				cell.gridBackground = MAP_BACKGROUND;
 				cell.fontFamily = "Arial Narrow";
@@ -369,6 +519,9 @@ public class MapView extends JPanel {
 			var astar = (AStarSearch) getPathFinder();
 			return new Cell(astar::getScore, astar::getEstimatedCostToTarget, astar::getCost);
 		}
+		if (getPathFinder() instanceof AbstractGridSearch gridSearch) {
+			return new Cell(gridSearch::getScore, gridSearch::getEstimatedCostToTarget, gridSearch::getCost);
+		}
 		if (impl == BidiAStarSearch.class) {
 			var bidiAstar = (BidiAStarSearch) getPathFinder();
 			return new Cell(bidiAstar::getScore, bidiAstar::getEstimatedCost, bidiAstar::getCost);
@@ -400,10 +553,8 @@ public class MapView extends JPanel {
 		if (partOfSolution(cell)) {
 			return SOLUTION_BACKGROUND;
 		}
-		if (getPathFinder() instanceof BidiGraphSearch<?,?> bidi) {
-			if (cell == bidi.getMeetingPoint()) {
-				return MEETING_POINT_BACKGROUND;
-			}
+		if (isMeetingPoint(cell)) {
+			return MEETING_POINT_BACKGROUND;
 		}
 		// TODO this code sometimes causes strange exceptions
 		if (getPathFinder().getState(model.getTarget()) == TraversalState.UNVISITED) {
@@ -431,14 +582,22 @@ public class MapView extends JPanel {
 		if (partOfSolution(cell)) {
 			return SOLUTION_FOREGROUND;
 		}
-		if (getPathFinder() instanceof BidiGraphSearch<?,?> bidi) {
-			if (cell == bidi.getMeetingPoint()) {
-				return MEETING_POINT_FOREGROUND;
-			}
+		if (isMeetingPoint(cell)) {
+			return MEETING_POINT_FOREGROUND;
 		}
 		return getPathFinder().getState(cell) == TraversalState.UNVISITED ? Color.LIGHT_GRAY : Color.BLUE;
 	}
 
+	private boolean isMeetingPoint(int cell) {
+		if (getPathFinder() instanceof BidiGraphSearch<?,?> bidi) {
+			return cell == bidi.getMeetingPoint();
+		}
+		if (getPathFinder() instanceof GridBidiSearch bidi) {
+			return cell == bidi.getMeetingPoint();
+		}
+		return false;
+	}
+
 	private boolean partOfSolution(int cell) {
 		return model.getResultAtIndex(getPathFinderIndex()).pathContains(cell);
 	}
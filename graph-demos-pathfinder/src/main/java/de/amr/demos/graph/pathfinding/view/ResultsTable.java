@@ -11,7 +11,6 @@ import de.amr.demos.graph.pathfinding.model.PathFinderAlgorithm;
 import de.amr.demos.graph.pathfinding.model.PathFinderModel;
 import de.amr.demos.graph.pathfinding.model.PathFinderResult;
 import de.amr.graph.pathfinder.api.Path;
-import de.amr.graph.pathfinder.impl.AStarSearch;
 
 /**
  * Table with path finder results.
@@ -45,7 +44,27 @@ public class ResultsTable extends JTable {
 		new ColumnSpec(
 				"Time [ms]", 
 				Float.class, 
-				time -> String.format("%.1f", time)), 
+				time -> String.format("%.3f", time)), 
+		new ColumnSpec(
+				"Min [ms]", 
+				Float.class, 
+				time -> (float) time == 0 ? "" : String.format("%.3f", time)), 
+		new ColumnSpec(
+				"Median [ms]", 
+				Float.class, 
+				time -> (float) time == 0 ? "" : String.format("%.3f", time)), 
+		new ColumnSpec(
+				"P95 [ms]", 
+				Float.class, 
+				time -> (float) time == 0 ? "" : String.format("%.3f", time)), 
+		new ColumnSpec(
+				"P99 [ms]", 
+				Float.class, 
+				time -> (float) time == 0 ? "" : String.format("%.3f", time)), 
+		new ColumnSpec(
+				"Prep. [ms]", 
+				Float.class, 
+				time -> (float) time == 0 ? "" : String.format("%.1f", time)), 
 		new ColumnSpec(
 				"Path length", 
 				Integer.class, 
@@ -63,6 +82,20 @@ public class ResultsTable extends JTable {
 				"Touched", Long.class), 
 		new ColumnSpec(
 				"Closed", Long.class), 
+		new ColumnSpec(
+				"Peak open", Long.class), 
+		new ColumnSpec(
+				"Exp./s", 
+				Double.class, 
+				rate -> (double) rate == 0 ? "" : String.format("%.0f", rate)), 
+		new ColumnSpec(
+				"Alloc. [KB]", 
+				Long.class, 
+				bytes -> (long) bytes < 0 ? "" : String.format("%.1f", (long) bytes / 1024.0)), 
+		new ColumnSpec(
+				"State [KB]", 
+				Long.class, 
+				bytes -> (long) bytes == 0 ? "" : String.format("%.1f", (long) bytes / 1024.0)), 
 		//@formatter:on
 	};
 
@@ -99,28 +132,47 @@ public class ResultsTable extends JTable {
 			PathFinderResult result = model.getResultAtIndex(rowIndex);
 			switch (columnIndex) {
 			case 0:
-				return result.getPathFinderName();
+				if (!result.isComplete()) {
+					return result.getEffectivePathFinderName() + " (" + result.getTermination() + ")";
+				}
+				return result.isCached() ? result.getEffectivePathFinderName() + " (cached)"
+						: result.getEffectivePathFinderName();
 			case 1:
 				return result.getRunningTimeMillis();
 			case 2:
-				return result.getPathLength();
+				return result.getTiming().minMillis();
 			case 3:
-				return result.getCost();
+				return result.getTiming().medianMillis();
 			case 4:
-				var astar = model.getPathFinderByClass(AStarSearch.class);
-				if (astar.isPresent()) {
-					double cost = result.getCost();
-					var astarResult = model.getResult(astar.get());
-					double optimum = astarResult.get().getCost();
-					if (cost != 0 && optimum != 0) {
-						return 100 * (result.getCost() - optimum) / optimum;
-					}
+				return result.getTiming().p95Millis();
+			case 5:
+				return result.getTiming().p99Millis();
+			case 6:
+				return result.getPreprocessingTimeMillis();
+			case 7:
+				return result.getPathLength();
+			case 8:
+				return result.getCost();
+			case 9:
+				// the A* implementation depends on the map representation
+				double cost = result.getCost();
+				double optimum = model.getResultAtIndex(PathFinderAlgorithm.AStar.ordinal()).getCost();
+				if (cost != 0 && optimum != 0) {
+					return 100 * (result.getCost() - optimum) / optimum;
 				}
 				return Path.INFINITE_COST;
-			case 5:
+			case 10:
 				return result.getNumTouchedVertices();
-			case 6:
+			case 11:
 				return result.getNumClosedVertices();
+			case 12:
+				return result.getPeakOpenListSize();
+			case 13:
+				return result.getExpansionsPerSecond();
+			case 14:
+				return result.getAllocatedBytes();
+			case 15:
+				return result.getStateSizeBytes();
 			default:
 				throw new IllegalArgumentException();
 			}